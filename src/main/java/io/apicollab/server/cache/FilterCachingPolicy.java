@@ -0,0 +1,32 @@
+package io.apicollab.server.cache;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryCachingPolicy;
+
+import java.util.function.Predicate;
+
+/**
+ * Caches the documents of the filters it accepts, whatever the segment size, and nothing else.
+ * Filtered searches then cost a bitset intersection instead of a postings traversal.
+ */
+public final class FilterCachingPolicy implements QueryCachingPolicy {
+
+    private final Predicate<Query> filter;
+
+    /**
+     * @param filter accepts the queries to cache
+     */
+    public FilterCachingPolicy(Predicate<Query> filter) {
+        this.filter = filter;
+    }
+
+    @Override
+    public void onUse(Query query) {
+    }
+
+    @Override
+    public boolean shouldCache(Query query, LeafReaderContext context) {
+        return filter.test(query);
+    }
+}
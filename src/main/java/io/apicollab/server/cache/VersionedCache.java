@@ -0,0 +1,217 @@
+package io.apicollab.server.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CacheMeterBinder;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.ToLongBiFunction;
+
+/**
+ * Least recently used cache of results read from an index, e.g. searches or lookups.
+ * Entries are weighed by their approximate size in memory and the least recently used ones are evicted once the
+ * total exceeds the capacity. Results are cached for the version of the index they were read from, and all entries
+ * are dropped as soon as a newer version is seen. Older versions, e.g. of a request still reading from the index
+ * before it changed, neither drop the entries nor get cached.
+ *
+ * @param <T> type of the index versions
+ * @param <K> type of the keys
+ * @param <V> type of the cached results
+ */
+public class VersionedCache<T, K, V> {
+
+    /**
+     * Approximate size of an entry of a map without its key and value, and of a String without its characters
+     */
+    public static final long ENTRY_OVERHEAD = 96;
+    public static final long STRING_OVERHEAD = 56;
+
+    private final long maxWeight;
+    private final ToLongBiFunction<K, V> weigher;
+    private final Comparator<? super T> order;
+    private final LinkedHashMap<K, V> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private T version;
+    private long weight;
+
+    private long hits;
+    private long misses;
+    private long puts;
+    private long evictions;
+    private long invalidations;
+
+    /**
+     * @param maxWeight approximate maximum size of the cached entries in bytes
+     * @param weigher approximate size of an entry in bytes
+     * @param order order of the versions, newer ones last
+     */
+    public VersionedCache(long maxWeight, ToLongBiFunction<K, V> weigher, Comparator<? super T> order) {
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        this.order = order;
+    }
+
+    /**
+     * @param version version of the index the results would be read from
+     * @param key
+     * @return The cached results, or null when they have to be read
+     */
+    public synchronized V get(T version, K key) {
+        int age = compare(version);
+        if (age > 0) {
+            invalidate(version);
+        }
+        V results = age >= 0 ? entries.get(key) : null;
+        if (results == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return results;
+    }
+
+    /**
+     * Caches results, unless they were read from an outdated version of the index
+     *
+     * @param version version of the index the results were read from
+     * @param key
+     * @param results
+     */
+    public synchronized void put(T version, K key, V results) {
+        int age = compare(version);
+        if (age > 0) {
+            invalidate(version);
+        } else if (age < 0) {
+            return;
+        }
+        long entryWeight = weigher.applyAsLong(key, results);
+        if (entryWeight > maxWeight) {
+            return;
+        }
+        V previous = entries.put(key, results);
+        if (previous != null) {
+            weight -= weigher.applyAsLong(key, previous);
+        }
+        weight += entryWeight;
+        puts++;
+        Iterator<Map.Entry<K, V>> eldest = entries.entrySet().iterator();
+        while (weight > maxWeight) {
+            Map.Entry<K, V> entry = eldest.next();
+            weight -= weigher.applyAsLong(entry.getKey(), entry.getValue());
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return The approximate size of the cached entries in bytes
+     */
+    public synchronized long weight() {
+        return weight;
+    }
+
+    /**
+     * @return 0 for the current version, positive for a newer one and negative for an older one
+     */
+    private int compare(T version) {
+        if (Objects.equals(version, this.version)) {
+            return 0;
+        }
+        if (this.version == null) {
+            return 1;
+        }
+        return order.compare(version, this.version) < 0 ? -1 : 1;
+    }
+
+    private void invalidate(T version) {
+        if (!entries.isEmpty()) {
+            invalidations++;
+        }
+        entries.clear();
+        weight = 0;
+        this.version = version;
+    }
+
+    /**
+     * @param name cache name tag
+     * @return The standard cache metrics, plus the number of invalidations and the hit ratio
+     */
+    public MeterBinder metrics(String name) {
+        return new CacheMeterBinder(this, name, Collections.emptyList()) {
+            @Override
+            protected Long size() {
+                return (long) VersionedCache.this.size();
+            }
+
+            @Override
+            protected long hitCount() {
+                synchronized (VersionedCache.this) {
+                    return hits;
+                }
+            }
+
+            @Override
+            protected Long missCount() {
+                synchronized (VersionedCache.this) {
+                    return misses;
+                }
+            }
+
+            @Override
+            protected Long evictionCount() {
+                synchronized (VersionedCache.this) {
+                    return evictions;
+                }
+            }
+
+            @Override
+            protected long putCount() {
+                synchronized (VersionedCache.this) {
+                    return puts;
+                }
+            }
+
+            @Override
+            protected void bindImplementationSpecificMetrics(MeterRegistry registry) {
+                FunctionCounter.builder("cache.invalidations", VersionedCache.this, c -> {
+                    synchronized (c) {
+                        return c.invalidations;
+                    }
+                }).tags(getTagsWithCacheName())
+                        .description("The number of times the cache was cleared because the index changed")
+                        .register(registry);
+                Gauge.builder("cache.hit.ratio", VersionedCache.this, VersionedCache::hitRatio)
+                        .tags(getTagsWithCacheName())
+                        .description("The ratio of gets answered from the cache")
+                        .register(registry);
+                Gauge.builder("cache.weight", VersionedCache.this, VersionedCache::weight)
+                        .tags(getTagsWithCacheName())
+                        .baseUnit("bytes")
+                        .description("The approximate size of the cached entries")
+                        .register(registry);
+            }
+        };
+    }
+
+    /**
+     * @return The approximate size of a string in bytes, 0 for null
+     */
+    public static long sizeOf(String string) {
+        return string == null ? 0 : STRING_OVERHEAD + 2L * string.length();
+    }
+
+    private synchronized double hitRatio() {
+        long requests = hits + misses;
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+}
@@ -1,37 +1,262 @@
 package io.apicollab.server.config;
 
+import io.apicollab.server.domain.Api;
+import io.apicollab.server.repository.ApiRepository;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.util.Bits;
+import org.hibernate.search.indexes.IndexReaderAccessor;
 import org.hibernate.search.jpa.FullTextEntityManager;
 import org.hibernate.search.jpa.Search;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.ApplicationListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.annotation.PreDestroy;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+/**
+ * Brings the Lucene index of the apis up to date with the database on startup. The revision of every indexed api,
+ * read from the doc values, is compared with its revision in the database: the index is reused when they all
+ * match, it is rebuilt when it is empty, otherwise only the apis with another revision or missing from it are
+ * indexed and the apis deleted since are purged. Changes lost before they reached the index, e.g. dropped from a
+ * full indexing queue or at shutdown, are caught up as well. The index is also rebuilt when it was analyzed with
+ * other settings, as recorded in the analysis marker file next to it.
+ */
 @Component
 @Slf4j
 public class HibernateSearchInitializer implements ApplicationListener<ApplicationReadyEvent> {
+
+    /**
+     * How the index was brought up to date
+     */
+    public enum Synchronization {
+        CURRENT, CAUGHT_UP, REBUILT
+    }
+
     @PersistenceContext
     EntityManager entityManager;
 
+    @Autowired
+    private ApiRepository apiRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private SearchMappingConfig searchMappingConfig;
+
+    /**
+     * File recording how the index was analyzed, blank when the index is not persisted
+     */
+    @Value("${api-search-analysis-marker-path:}")
+    private String analysisMarkerPath;
+
+    /**
+     * Synchronize the index in the background instead of on the thread publishing the application ready event
+     */
+    @Value("${api-search-startup-indexing-background:true}")
+    private boolean background;
+
+    @Value("${api-search-startup-indexing-threads:2}")
+    private int threadsToLoadObjects;
+
+    /**
+     * Apis loaded and indexed at a time, by the mass indexer and during a catch-up
+     */
+    @Value("${api-search-startup-indexing-batch-size:25}")
+    private int batchSize;
+
+    @Value("${api-search-startup-indexing-id-fetch-size:100}")
+    private int idFetchSize;
+
+    private ExecutorService executor;
+
     /**
-     * Create an initial Lucene index for the data already present in the
+     * Synchronize the Lucene index with the data already present in the
      * database.
      * This method is called when Spring's startup.
      */
     @Override
-    @Transactional
     public void onApplicationEvent(final ApplicationReadyEvent event) {
+        if (!background) {
+            synchronizeIndex();
+            return;
+        }
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("search-indexing-");
+        threadFactory.setDaemon(true);
+        executor = Executors.newSingleThreadExecutor(threadFactory);
+        executor.submit(() -> {
+            try {
+                synchronizeIndex();
+            } catch (RuntimeException e) {
+                log.error("Failed to index search engine", e);
+            }
+        });
+        executor.shutdown();
+    }
+
+    @PreDestroy
+    protected void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Brings the index up to date, blocking until it is
+     *
+     * @return How it was brought up to date
+     */
+    public Synchronization synchronizeIndex() {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            FullTextEntityManager fullTextEntityManager = Search.getFullTextEntityManager(entityManager);
+            if (!isAnalysisCurrent()) {
+                log.info("Search index was analyzed with other settings");
+                rebuild(fullTextEntityManager);
+                return Synchronization.REBUILT;
+            }
+            Map<String, Long> indexed = readIndexedRevisions(fullTextEntityManager);
+            Map<String, Long> stored = new HashMap<>();
+            apiRepository.findAllRevisions().forEach(api -> stored.put(api.getId(), api.getRevision()));
+            if (indexed.isEmpty() && !stored.isEmpty()) {
+                rebuild(fullTextEntityManager);
+                return Synchronization.REBUILT;
+            }
+            List<String> outdatedIds = new ArrayList<>();
+            stored.forEach((id, revision) -> {
+                if (!Objects.equals(indexed.get(id), revision)) {
+                    outdatedIds.add(id);
+                }
+            });
+            List<String> deletedIds = new ArrayList<>();
+            indexed.keySet().stream().filter(id -> !stored.containsKey(id)).forEach(deletedIds::add);
+            if (outdatedIds.isEmpty() && deletedIds.isEmpty()) {
+                log.info("Search index is current with {} apis", indexed.size());
+                return Synchronization.CURRENT;
+            }
+            catchUp(fullTextEntityManager, outdatedIds, deletedIds);
+            return Synchronization.CAUGHT_UP;
+        });
+    }
+
+    private void rebuild(FullTextEntityManager fullTextEntityManager) {
+        log.info("Rebuilding search index");
         try {
-            FullTextEntityManager fullTextEntityManager =
-                    Search.getFullTextEntityManager(entityManager);
-            fullTextEntityManager.createIndexer().startAndWait();
+            fullTextEntityManager.createIndexer(Api.class)
+                    .threadsToLoadObjects(threadsToLoadObjects)
+                    .batchSizeToLoadObjects(batchSize)
+                    .idFetchSize(idFetchSize)
+                    .startAndWait();
+            writeAnalysisMarker();
         } catch (InterruptedException e) {
             log.error("Failed to index search engine", e);
             Thread.currentThread().interrupt();
         }
     }
+
+    private boolean isAnalysisCurrent() {
+        if (StringUtils.isBlank(analysisMarkerPath)) {
+            return true;
+        }
+        Path marker = Paths.get(analysisMarkerPath);
+        try {
+            return Files.exists(marker)
+                    && new String(Files.readAllBytes(marker), StandardCharsets.UTF_8).equals(searchMappingConfig.getAnalysisFingerprint());
+        } catch (IOException e) {
+            log.warn("Failed to read the search analysis marker {}", marker, e);
+            return false;
+        }
+    }
+
+    private void writeAnalysisMarker() {
+        if (StringUtils.isBlank(analysisMarkerPath)) {
+            return;
+        }
+        Path marker = Paths.get(analysisMarkerPath);
+        try {
+            if (marker.getParent() != null) {
+                Files.createDirectories(marker.getParent());
+            }
+            Files.write(marker, searchMappingConfig.getAnalysisFingerprint().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            log.warn("Failed to write the search analysis marker {}", marker, e);
+        }
+    }
+
+    private void catchUp(FullTextEntityManager fullTextEntityManager, List<String> outdatedIds, List<String> deletedIds) {
+        log.info("Search index catching up with {} modified and {} deleted apis", outdatedIds.size(), deletedIds.size());
+
+        deletedIds.forEach(id -> fullTextEntityManager.purge(Api.class, id));
+        List<String> batch = new ArrayList<>(batchSize);
+        for (String id : outdatedIds) {
+            batch.add(id);
+            if (batch.size() == batchSize) {
+                index(fullTextEntityManager, batch);
+                batch.clear();
+            }
+        }
+        index(fullTextEntityManager, batch);
+    }
+
+    private void index(FullTextEntityManager fullTextEntityManager, List<String> ids) {
+        apiRepository.findAllById(ids).forEach(fullTextEntityManager::index);
+        fullTextEntityManager.flushToIndexes();
+        fullTextEntityManager.clear();
+    }
+
+    /**
+     * @return The revision of every indexed api by its id
+     */
+    private static Map<String, Long> readIndexedRevisions(FullTextEntityManager fullTextEntityManager) {
+        IndexReaderAccessor readerAccessor = fullTextEntityManager.getSearchFactory().getIndexReaderAccessor();
+        IndexReader reader = readerAccessor.open(Api.class);
+        Map<String, Long> revisions = new HashMap<>();
+        try {
+            // Read from the doc values, loading the stored fields would read every specification too
+            for (LeafReaderContext context : reader.leaves()) {
+                LeafReader leaf = context.reader();
+                SortedDocValues idValues = leaf.getSortedDocValues(Api.ID_SORT_FIELD);
+                NumericDocValues revisionValues = leaf.getNumericDocValues(Api.REVISION_SORT_FIELD);
+                if (idValues == null || revisionValues == null) {
+                    continue;
+                }
+                Bits liveDocs = leaf.getLiveDocs();
+                for (int doc = 0; doc < leaf.maxDoc(); doc++) {
+                    if (liveDocs == null || liveDocs.get(doc)) {
+                        revisions.put(idValues.get(doc).utf8ToString(), revisionValues.get(doc));
+                    }
+                }
+            }
+            return revisions;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            readerAccessor.close(reader);
+        }
+    }
 }
@@ -0,0 +1,121 @@
+package io.apicollab.server.config;
+
+import io.apicollab.server.domain.Api;
+import io.apicollab.server.mapper.OpenApiStopFilterFactory;
+import org.apache.lucene.analysis.core.LowerCaseFilterFactory;
+import org.apache.lucene.analysis.miscellaneous.TruncateTokenFilterFactory;
+import org.apache.lucene.analysis.miscellaneous.WordDelimiterFilterFactory;
+import org.apache.lucene.analysis.ngram.EdgeNGramFilterFactory;
+import org.apache.lucene.analysis.standard.StandardTokenizerFactory;
+import org.hibernate.search.cfg.AnalyzerDefMapping;
+import org.hibernate.search.cfg.Environment;
+import org.hibernate.search.cfg.SearchMapping;
+import org.hibernate.search.cfg.TokenFilterDefMapping;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Arrays;
+import java.util.TreeSet;
+
+/**
+ * Defines the analyzers of the api specification, whose gram lengths and stop words are configurable and
+ * so cannot be declared in annotations. The index is rebuilt on startup when they change,
+ * see {@link #getAnalysisFingerprint()}.
+ */
+@Configuration
+public class SearchMappingConfig {
+
+    /**
+     * Bump when the analyzers or the indexed fields change in a way the properties do not show, so existing
+     * indexes are rebuilt
+     */
+    private static final int ANALYSIS_VERSION = 9;
+
+    /**
+     * Shortest prefix indexed, shorter words of a search match nothing
+     */
+    @Value("${api-search-prefix-min-gram:1}")
+    private int minGram;
+
+    /**
+     * Longest prefix indexed, longer words of a search match on their first characters only
+     */
+    @Value("${api-search-prefix-max-gram:20}")
+    private int maxGram;
+
+    /**
+     * Words left out of the index and of searches, separated by commas
+     */
+    @Value("${api-search-stop-words:" + OpenApiStopFilterFactory.DEFAULT_WORDS + "}")
+    private String stopWords;
+
+    /**
+     * Stop words still indexed and searched, separated by commas, e.g. "string" to find apis by the types they use
+     */
+    @Value("${api-search-stop-words-exceptions:}")
+    private String stopWordExceptions;
+
+    @Bean
+    public HibernatePropertiesCustomizer searchMappingCustomizer() {
+        return properties -> properties.put(Environment.MODEL_MAPPING, searchMapping());
+    }
+
+    /**
+     * @return The version and settings of the analyzers, indexes analyzed otherwise have to be rebuilt
+     */
+    public String getAnalysisFingerprint() {
+        return "version=" + ANALYSIS_VERSION + ";minGram=" + minGram + ";maxGram=" + maxGram
+                + ";stopWords=" + getStopWords();
+    }
+
+    /**
+     * @return The stop words less their exceptions, lowercased, sorted and separated by commas
+     */
+    public String getStopWords() {
+        TreeSet<String> words = words(stopWords);
+        words.removeAll(words(stopWordExceptions));
+        return String.join(",", words);
+    }
+
+    private static TreeSet<String> words(String list) {
+        TreeSet<String> words = new TreeSet<>(Arrays.asList(list.toLowerCase().split("[,\\s]+")));
+        words.remove("");
+        return words;
+    }
+
+    private SearchMapping searchMapping() {
+        SearchMapping mapping = new SearchMapping();
+        // Indexes the words of identifiers as well, e.g. "listPets" and "list_pets" also give "list" and "pets"
+        splitWords(mapping.analyzerDef(Api.TEXT_ANALYZER, StandardTokenizerFactory.class));
+        // Indexes every prefix of every word, e.g. "pet", "pets" and "petst" of "petstore"
+        splitWords(mapping.analyzerDef(Api.PREFIX_ANALYZER, StandardTokenizerFactory.class))
+                .filter(EdgeNGramFilterFactory.class)
+                .param("minGramSize", String.valueOf(minGram))
+                .param("maxGramSize", String.valueOf(maxGram));
+        // Searches the words as they are, each one is a prefix to look up
+        mapping.analyzerDef(Api.PREFIX_QUERY_ANALYZER, StandardTokenizerFactory.class)
+                .filter(LowerCaseFilterFactory.class)
+                .filter(OpenApiStopFilterFactory.class)
+                .param(OpenApiStopFilterFactory.WORDS_PARAMETER, getStopWords())
+                .filter(TruncateTokenFilterFactory.class)
+                .param("prefixLength", String.valueOf(maxGram));
+        return mapping;
+    }
+
+    /**
+     * Splits identifiers on case changes and delimiters, keeping them whole too, then lowercases the words and
+     * drops the stop words
+     */
+    private TokenFilterDefMapping splitWords(AnalyzerDefMapping analyzer) {
+        return analyzer
+                .filter(WordDelimiterFilterFactory.class)
+                .param("preserveOriginal", "1")
+                .param("splitOnNumerics", "0")
+                .param("stemEnglishPossessive", "0")
+                .filter(LowerCaseFilterFactory.class)
+                .filter(OpenApiStopFilterFactory.class)
+                .param(OpenApiStopFilterFactory.WORDS_PARAMETER, getStopWords());
+    }
+}
@@ -3,10 +3,13 @@ package io.apicollab.server.controller;
 import io.apicollab.server.constant.ApiStatus;
 import io.apicollab.server.domain.Api;
 import io.apicollab.server.dto.ApiDTO;
+import io.apicollab.server.dto.ApiSearchResultDTO;
 import io.apicollab.server.dto.ApiUpdateInput;
 import io.apicollab.server.dto.CollectionWrapperDTO;
 import io.apicollab.server.exception.ApiPortalException;
+import io.apicollab.server.exception.InvalidCursorException;
 import io.apicollab.server.mapper.ApiMapper;
+import io.apicollab.server.repository.ApiSearchPage;
 import io.apicollab.server.service.ApiService;
 import io.apicollab.server.service.ApiSpecParserService;
 import io.apicollab.server.service.ApplicationService;
@@ -17,6 +20,7 @@ import io.apicollab.server.web.commons.ValidationResultDTO;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.IOUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.Resource;
 import org.springframework.http.HttpStatus;
@@ -30,6 +34,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -40,6 +45,9 @@ import static java.util.Arrays.asList;
 @Slf4j
 public class ApiController {
 
+    private static final int DEFAULT_SEARCH_LIMIT = 20;
+    private static final int MAX_SEARCH_LIMIT = 100;
+
     @Autowired
     private ApiService apiService;
 
@@ -49,6 +57,12 @@ public class ApiController {
     @Autowired
     private ApiMapper apiMapper;
 
+    /**
+     * List search results from the fields stored in the index instead of loading the apis
+     */
+    @Value("${api-search-projections:true}")
+    private boolean searchProjections;
+
 
     @GetMapping("/applications/{applicationId}/apis")
     public CollectionWrapperDTO<ApiDTO> getApplicationApis(@PathVariable String applicationId) {
@@ -71,12 +85,25 @@ public class ApiController {
     }
 
     @GetMapping("apis/search")
-    public CollectionWrapperDTO<ApiDTO> searchApis(@RequestParam(name = "query") String query) {
-        Set<ApiDTO> items = apiService.search(query)
-                .stream()
-                .map(apiMapper::toDto)
-                .collect(Collectors.toSet());
-        return new CollectionWrapperDTO<>(items);
+    public ApiSearchResultDTO searchApis(@RequestParam(name = "query") String query,
+                                         @RequestParam(name = "limit", defaultValue = "" + DEFAULT_SEARCH_LIMIT) int limit,
+                                         @RequestParam(name = "cursor", required = false) String cursor,
+                                         @RequestParam(name = "snippets", defaultValue = "false") boolean snippets) {
+        if (limit < 1 || limit > MAX_SEARCH_LIMIT) {
+            throw new APIException("Limit must be between 1 and " + MAX_SEARCH_LIMIT, APIErrors.VALIDATION_ERROR.toString(), APIErrors.VALIDATION_ERROR.status);
+        }
+        ApiSearchPage<ApiDTO> page;
+        try {
+            page = searchProjections ? apiService.searchProjections(query, limit, cursor, snippets)
+                    : apiService.search(query, limit, cursor, snippets).map(apiMapper::toDto);
+        } catch (InvalidCursorException e) {
+            throw new APIException("Invalid cursor provided", APIErrors.VALIDATION_ERROR.toString(), APIErrors.VALIDATION_ERROR.status);
+        }
+        Map<String, List<String>> snippetsById = page.getSnippets();
+        if (snippetsById != null) {
+            page.getApis().forEach(api -> api.setSnippets(snippetsById.get(api.getApiId())));
+        }
+        return new ApiSearchResultDTO(page.getApis(), page.getTotalCount(), page.getNextCursor(), page.getFacets());
     }
 
 
@@ -1,14 +1,15 @@
 package io.apicollab.server.controller;
 
-import io.apicollab.server.dto.CollectionWrapperDTO;
+import io.apicollab.server.constant.ApiStatus;
+import io.apicollab.server.dto.SuggestionsDTO;
 import io.apicollab.server.service.SuggestionService;
+import io.apicollab.server.service.suggestion.SuggestionResults;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.util.List;
-
 @RestController
 public class SuggestionController {
 
@@ -16,7 +17,20 @@ public class SuggestionController {
     private SuggestionService service;
 
     @GetMapping("/suggestions/{partialWord}")
-    public CollectionWrapperDTO<String> getSuggestions(@PathVariable String partialWord){
-        return new CollectionWrapperDTO<>(service.search(partialWord));
+    public SuggestionsDTO getSuggestions(@PathVariable String partialWord,
+                                         @RequestParam(name = "applicationId", required = false) String applicationId,
+                                         @RequestParam(name = "status", required = false) ApiStatus status,
+                                         @RequestParam(name = "tag", required = false) String tag){
+        SuggestionResults results = service.suggest(partialWord, applicationId, status, tag);
+        return new SuggestionsDTO(results.getSuggestions(), results.isTruncated());
+    }
+
+    @GetMapping("/suggestions/phrases/{partialPhrase}")
+    public SuggestionsDTO getPhraseSuggestions(@PathVariable String partialPhrase,
+                                               @RequestParam(name = "applicationId", required = false) String applicationId,
+                                               @RequestParam(name = "status", required = false) ApiStatus status,
+                                               @RequestParam(name = "tag", required = false) String tag){
+        SuggestionResults results = service.suggestPhrases(partialPhrase, applicationId, status, tag);
+        return new SuggestionsDTO(results.getSuggestions(), results.isTruncated());
     }
 }
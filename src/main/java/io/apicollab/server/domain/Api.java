@@ -1,13 +1,16 @@
 package io.apicollab.server.domain;
 
 import io.apicollab.server.constant.ApiStatus;
+import io.apicollab.server.mapper.ApiFacetsBridge;
+import io.apicollab.server.mapper.ApiTagsBridge;
 import io.apicollab.server.mapper.ApiTagsConverter;
+import io.apicollab.server.mapper.ApplicationIdBridge;
+import io.apicollab.server.mapper.OpenApiFieldBridge;
 import lombok.*;
-import org.apache.lucene.analysis.core.LowerCaseFilterFactory;
-import org.apache.lucene.analysis.standard.StandardTokenizerFactory;
 import org.hibernate.annotations.GenericGenerator;
 import org.hibernate.annotations.Type;
 import org.hibernate.search.annotations.*;
+import org.hibernate.search.annotations.Index;
 import org.hibernate.search.bridge.builtin.EnumBridge;
 
 import javax.persistence.*;
@@ -21,50 +24,98 @@ import java.util.List;
 @EqualsAndHashCode(of = {"id"})
 @ToString(of = {"id", "name"})
 @Indexed
-@AnalyzerDef(name = "lowercaseAnalyser",
-        tokenizer = @TokenizerDef(factory = StandardTokenizerFactory.class),
-        filters = {
-                @TokenFilterDef(factory = LowerCaseFilterFactory.class),
-        }
-)
+@ClassBridge(name = Api.FACET_FIELD, impl = ApiFacetsBridge.class)
 public class Api extends BaseEntity {
 
     private static final long serialVersionUID = 8281554038825109184L;
 
+    /**
+     * Indexed field of the id with doc values, to sort search results in a stable order
+     */
+    public static final String ID_SORT_FIELD = "idSort";
+
+    /**
+     * Stored field of the application id, to list apis from the index alone like their other stored fields
+     */
+    public static final String APPLICATION_ID_FIELD = "applicationId";
+
+    /**
+     * Prefix of the fields of the parsed specification, see {@link OpenApiFieldBridge}
+     */
+    public static final String OPENAPI_FIELD = "openapi";
+
+    /**
+     * Prefix of the doc values fields search results are counted by, see {@link ApiFacetsBridge}
+     */
+    public static final String FACET_FIELD = "facet";
+
+    /**
+     * Analyzer of the specification, defined with the prefix analyzers
+     */
+    public static final String TEXT_ANALYZER = "codeAnalyser";
+
+    /**
+     * Field of the specification indexed with every prefix of its words, so a prefix is looked up as a single term.
+     * Its analyzers are defined in {@link io.apicollab.server.config.SearchMappingConfig}
+     */
+    public static final String PREFIX_FIELD = "swaggerDefinitionPrefix";
+    public static final String PREFIX_ANALYZER = "edgeNGramAnalyser";
+    public static final String PREFIX_QUERY_ANALYZER = "edgeNGramQueryAnalyser";
+
+    /**
+     * Stored only field of the compressed specification, read for the search results that need snippets
+     */
+    public static final String TEXT_FIELD = "swaggerDefinitionText";
+
     @Id
     @GeneratedValue(generator = "system-uuid")
     @GenericGenerator(name = "system-uuid", strategy = "uuid2")
+    @Field(name = ID_SORT_FIELD, analyze = Analyze.NO)
+    @SortableField(forField = ID_SORT_FIELD)
     protected String id;
 
     @Column(nullable = false)
+    @Field(index = Index.NO, analyze = Analyze.NO, store = Store.YES)
     private String name;
 
     @Column(nullable = false)
+    @Field(index = Index.NO, analyze = Analyze.NO, store = Store.YES)
     private String version;
 
     @Column(nullable = false, length = 255)
+    @Field(index = Index.NO, analyze = Analyze.NO, store = Store.YES)
     private String description;
 
     @Column
     @Convert(converter = ApiTagsConverter.class)
+    @Field(index = Index.NO, analyze = Analyze.NO, store = Store.YES, bridge = @FieldBridge(impl = ApiTagsBridge.class))
     private List<String> tags;
 
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
-    @Field(bridge=@FieldBridge(impl=EnumBridge.class))
+    @Field(bridge=@FieldBridge(impl=EnumBridge.class), analyze = Analyze.NO, store = Store.YES)
     private ApiStatus status;
 
+    // Declared before the specification, fields are stored in declaration order and listings stop reading at its text
+    @ManyToOne
+    @Field(name = APPLICATION_ID_FIELD, index = Index.NO, analyze = Analyze.NO, store = Store.YES,
+            bridge = @FieldBridge(impl = ApplicationIdBridge.class))
+    private Application application;
+
     @Column(nullable = false, length = 2000000) // 2 MB max
     @Basic(fetch = FetchType.LAZY)
     @Lob
     @Type(type="org.hibernate.type.StringType")
-    @Field()
-    @Analyzer(definition = "lowercaseAnalyser")
+    @Fields({
+            // The offsets of its terms locate the parts a search matches in the stored text
+            @Field(termVector = TermVector.WITH_OFFSETS),
+            @Field(name = TEXT_FIELD, index = Index.NO, analyze = Analyze.NO, store = Store.COMPRESS),
+            @Field(name = PREFIX_FIELD, analyzer = @Analyzer(definition = PREFIX_ANALYZER)),
+            @Field(name = OPENAPI_FIELD, analyze = Analyze.NO, bridge = @FieldBridge(impl = OpenApiFieldBridge.class))
+    })
+    @Analyzer(definition = TEXT_ANALYZER)
     private String swaggerDefinition;
 
-    @ManyToOne
-    private Application application;
-
     @PrePersist
     @PreUpdate
     void truncateDescription() {
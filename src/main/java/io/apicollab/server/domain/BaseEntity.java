@@ -2,6 +2,9 @@ package io.apicollab.server.domain;
 
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.search.annotations.Analyze;
+import org.hibernate.search.annotations.Field;
+import org.hibernate.search.annotations.SortableField;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
@@ -23,11 +26,25 @@ abstract class BaseEntity implements Serializable {
 
     private static final long serialVersionUID = 6656416056177654856L;
 
+    /**
+     * Indexed field of the revision with doc values, to tell whether the search index is up to date
+     */
+    public static final String REVISION_SORT_FIELD = "revisionSort";
+
+    /**
+     * Indexed field of the creation date with doc values, to sort equally relevant search results oldest first
+     */
+    public static final String CREATED_SORT_FIELD = "createdSort";
+
     @Version
+    @Field(name = REVISION_SORT_FIELD, analyze = Analyze.NO)
+    @SortableField(forField = REVISION_SORT_FIELD)
     protected Long revision;
 
     @CreatedDate
     @Temporal(TIMESTAMP)
+    @Field(name = CREATED_SORT_FIELD, analyze = Analyze.NO)
+    @SortableField(forField = CREATED_SORT_FIELD)
     protected Date createdDate;
 
     @LastModifiedDate
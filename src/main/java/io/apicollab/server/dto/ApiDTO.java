@@ -38,4 +38,9 @@ public class ApiDTO implements Serializable {
     private String applicationId;
 
     private String swaggerDefinition;
+
+    /**
+     * Parts of the specification a search matches, with the matches highlighted, only in search results
+     */
+    private List<String> snippets;
 }
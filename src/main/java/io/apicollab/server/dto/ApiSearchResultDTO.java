@@ -0,0 +1,38 @@
+package io.apicollab.server.dto;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.util.Collection;
+import java.util.Map;
+
+@Getter
+@Setter
+@EqualsAndHashCode(callSuper = true)
+@ToString(callSuper = true)
+public class ApiSearchResultDTO extends CollectionWrapperDTO<ApiDTO> {
+
+    /**
+     * Cursor to pass back for the next page, not set on the last page
+     */
+    private String nextCursor;
+
+    /**
+     * Number of apis matching the search by status, tag and application, only set on the first page
+     */
+    private Map<String, Map<String, Integer>> facets;
+
+    /**
+     * @param items apis of the page
+     * @param totalCount number of apis matching the search across all pages
+     * @param nextCursor
+     * @param facets
+     */
+    public ApiSearchResultDTO(Collection<ApiDTO> items, int totalCount, String nextCursor, Map<String, Map<String, Integer>> facets) {
+        super(totalCount, items);
+        this.nextCursor = nextCursor;
+        this.facets = facets;
+    }
+}
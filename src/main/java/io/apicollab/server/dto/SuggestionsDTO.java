@@ -0,0 +1,25 @@
+package io.apicollab.server.dto;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.util.Collection;
+
+@Getter
+@Setter
+@EqualsAndHashCode(callSuper = true)
+@ToString(callSuper = true)
+public class SuggestionsDTO extends CollectionWrapperDTO<String> {
+
+    /**
+     * Set when the search ran out of time and only returns the suggestions found so far
+     */
+    private Boolean truncated;
+
+    public SuggestionsDTO(Collection<String> items, boolean truncated) {
+        super(items);
+        this.truncated = truncated ? Boolean.TRUE : null;
+    }
+}
@@ -0,0 +1,43 @@
+package io.apicollab.server.event;
+
+import io.apicollab.server.domain.Api;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Published whenever an api is created, updated or deleted.
+ * Listeners interested in committed data only should use a transactional event listener.
+ */
+@Getter
+@AllArgsConstructor
+@ToString(of = {"type", "apiId"})
+public class ApiChangedEvent {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    private final Type type;
+
+    private final String apiId;
+
+    /**
+     * The changed api, not available for {@link Type#DELETED} events.
+     */
+    private final Api api;
+
+    public static ApiChangedEvent created(Api api) {
+        return new ApiChangedEvent(Type.CREATED, api.getId(), api);
+    }
+
+    public static ApiChangedEvent updated(Api api) {
+        return new ApiChangedEvent(Type.UPDATED, api.getId(), api);
+    }
+
+    public static ApiChangedEvent deleted(String apiId) {
+        return new ApiChangedEvent(Type.DELETED, apiId, null);
+    }
+}
@@ -0,0 +1,13 @@
+package io.apicollab.server.exception;
+
+/**
+ * Thrown when a search cursor passed back by a client was not encoded by the server
+ */
+public class InvalidCursorException extends RuntimeException {
+
+    private static final long serialVersionUID = 4830713581409362017L;
+
+    public InvalidCursorException(String cursor, Throwable cause) {
+        super("Invalid search cursor " + cursor, cause);
+    }
+}
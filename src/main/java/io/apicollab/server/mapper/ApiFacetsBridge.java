@@ -0,0 +1,40 @@
+package io.apicollab.server.mapper;
+
+import io.apicollab.server.domain.Api;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.util.BytesRef;
+import org.hibernate.search.bridge.FieldBridge;
+import org.hibernate.search.bridge.LuceneOptions;
+
+/**
+ * Indexes the status, tags and application id of an api as doc values, under the name of the bridge followed by
+ * a suffix, e.g. facet.status. Search results are counted by these values while they are collected.
+ */
+public class ApiFacetsBridge implements FieldBridge {
+
+    public static final String STATUS_SUFFIX = ".status";
+    public static final String TAG_SUFFIX = ".tag";
+    public static final String APPLICATION_SUFFIX = ".application";
+
+    @Override
+    public void set(String name, Object value, Document document, LuceneOptions luceneOptions) {
+        Api api = (Api) value;
+        if (api.getStatus() != null) {
+            add(document, name + STATUS_SUFFIX, api.getStatus().name());
+        }
+        if (api.getTags() != null) {
+            // Duplicate values of a document are counted once
+            api.getTags().forEach(tag -> add(document, name + TAG_SUFFIX, tag));
+        }
+        if (api.getApplication() != null) {
+            add(document, name + APPLICATION_SUFFIX, api.getApplication().getId());
+        }
+    }
+
+    private static void add(Document document, String field, String value) {
+        if (value != null && !value.isEmpty()) {
+            document.add(new SortedSetDocValuesField(field, new BytesRef(value)));
+        }
+    }
+}
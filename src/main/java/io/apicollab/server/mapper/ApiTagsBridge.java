@@ -0,0 +1,24 @@
+package io.apicollab.server.mapper;
+
+import org.hibernate.search.bridge.TwoWayStringBridge;
+
+import java.util.List;
+
+/**
+ * Helper class to convert between Tags:List<String>(ENTITY) and Tags:String (INDEX), the same way as the database
+ */
+public class ApiTagsBridge implements TwoWayStringBridge {
+
+    private final ApiTagsConverter converter = new ApiTagsConverter();
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public String objectToString(Object tags) {
+        return converter.convertToDatabaseColumn((List<String>) tags);
+    }
+
+    @Override
+    public List<String> stringToObject(String s) {
+        return converter.convertToEntityAttribute(s);
+    }
+}
@@ -0,0 +1,15 @@
+package io.apicollab.server.mapper;
+
+import io.apicollab.server.domain.Application;
+import org.hibernate.search.bridge.StringBridge;
+
+/**
+ * Helper class to index the Application of an api by its id
+ */
+public class ApplicationIdBridge implements StringBridge {
+
+    @Override
+    public String objectToString(Object application) {
+        return application == null ? null : ((Application) application).getId();
+    }
+}
@@ -0,0 +1,77 @@
+package io.apicollab.server.mapper;
+
+import io.apicollab.server.service.ApiSpecParserService;
+import io.swagger.v3.oas.models.OpenAPI;
+import io.swagger.v3.oas.models.tags.Tag;
+import org.apache.lucene.document.Document;
+import org.hibernate.search.bridge.FieldBridge;
+import org.hibernate.search.bridge.LuceneOptions;
+
+import java.util.*;
+
+/**
+ * Indexes the structure of an OpenAPI (or Swagger 2) specification in separate small fields: paths, HTTP methods,
+ * operationIds, schema names, tags and server urls, each under the name of the field followed by its suffix,
+ * e.g. openapi.path. Values are indexed whole and lowercase. Specifications that cannot be parsed add no fields.
+ */
+public class OpenApiFieldBridge implements FieldBridge {
+
+    public static final String PATH_SUFFIX = ".path";
+    public static final String METHOD_SUFFIX = ".method";
+    public static final String OPERATION_SUFFIX = ".operation";
+    public static final String SCHEMA_SUFFIX = ".schema";
+    public static final String TAG_SUFFIX = ".tag";
+    public static final String SERVER_SUFFIX = ".server";
+
+    @Override
+    public void set(String name, Object value, Document document, LuceneOptions luceneOptions) {
+        if (value == null) {
+            return;
+        }
+        OpenAPI openAPI = ApiSpecParserService.parseOpenAPI((String) value);
+        if (openAPI == null) {
+            return;
+        }
+        extract(openAPI).forEach((suffix, values) ->
+                values.forEach(v -> luceneOptions.addFieldToDocument(name + suffix, v, document)));
+    }
+
+    /**
+     * @return The lowercase values of the specification by field suffix, without duplicates
+     */
+    static Map<String, Set<String>> extract(OpenAPI openAPI) {
+        Map<String, Set<String>> values = new LinkedHashMap<>();
+        if (openAPI.getPaths() != null) {
+            openAPI.getPaths().forEach((path, item) -> {
+                add(values, PATH_SUFFIX, path);
+                item.readOperationsMap().forEach((method, operation) -> {
+                    add(values, METHOD_SUFFIX, method.name());
+                    add(values, OPERATION_SUFFIX, operation.getOperationId());
+                    addAll(values, TAG_SUFFIX, operation.getTags());
+                });
+            });
+        }
+        if (openAPI.getComponents() != null && openAPI.getComponents().getSchemas() != null) {
+            addAll(values, SCHEMA_SUFFIX, openAPI.getComponents().getSchemas().keySet());
+        }
+        if (openAPI.getTags() != null) {
+            openAPI.getTags().stream().map(Tag::getName).forEach(tag -> add(values, TAG_SUFFIX, tag));
+        }
+        if (openAPI.getServers() != null) {
+            openAPI.getServers().forEach(server -> add(values, SERVER_SUFFIX, server.getUrl()));
+        }
+        return values;
+    }
+
+    private static void addAll(Map<String, Set<String>> values, String suffix, Collection<String> added) {
+        if (added != null) {
+            added.forEach(value -> add(values, suffix, value));
+        }
+    }
+
+    private static void add(Map<String, Set<String>> values, String suffix, String value) {
+        if (value != null && !value.trim().isEmpty()) {
+            values.computeIfAbsent(suffix, s -> new LinkedHashSet<>()).add(value.trim().toLowerCase(Locale.ROOT));
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package io.apicollab.server.mapper;
+
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.core.StopFilter;
+import org.apache.lucene.analysis.util.CharArraySet;
+import org.apache.lucene.analysis.util.TokenFilterFactory;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Drops the structural keywords of OpenAPI specifications, e.g. "type", "string" or "200", which appear in every
+ * specification and so tell none apart, and would otherwise make up most of the postings of the index. The words are
+ * listed in the "words" parameter, separated by commas or whitespace, instead of a resource file so they can be
+ * configured like any other property.
+ */
+public class OpenApiStopFilterFactory extends TokenFilterFactory {
+
+    public static final String WORDS_PARAMETER = "words";
+
+    /**
+     * Keys, types, formats, media types, parameter locations and status codes of OpenAPI and Swagger 2 documents
+     */
+    public static final String DEFAULT_WORDS = "openapi,swagger,info,title,version,description,summary,"
+            + "paths,components,definitions,schemas,schema,ref,type,string,integer,number,boolean,object,array,"
+            + "items,properties,additionalproperties,allof,oneof,anyof,required,format,int32,int64,float,double,"
+            + "enum,default,example,responses,requestbody,content,application,json,xml,parameters,in,query,header,"
+            + "operationid,tags,servers,url,200,201,204,400,401,403,404,500";
+
+    private final CharArraySet stopWords;
+
+    public OpenApiStopFilterFactory(Map<String, String> args) {
+        super(args);
+        Set<String> words = getSet(args, WORDS_PARAMETER);
+        stopWords = words == null ? CharArraySet.EMPTY_SET : new CharArraySet(words, true);
+        if (!args.isEmpty()) {
+            throw new IllegalArgumentException("Unknown parameters: " + args);
+        }
+    }
+
+    @Override
+    public TokenStream create(TokenStream input) {
+        return new StopFilter(input, stopWords);
+    }
+}
@@ -3,18 +3,53 @@ package io.apicollab.server.repository;
 import io.apicollab.server.constant.ApiStatus;
 import io.apicollab.server.domain.Api;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface ApiRepository extends JpaRepository<Api, String> {
 
+    /**
+     * Number of rows fetched at a time by streaming queries
+     */
+    int STREAM_FETCH_SIZE = 50;
+
     Optional<Api> findByApplicationIdAndVersion(String applicationId, String version);
 
     Collection<Api> findByApplicationId(String applicationId);
 
     Collection<Api> findAllByStatusIn(List<ApiStatus> statusCodes);
+
+    @Query("select a.id as id, a.revision as revision from Api a where a.status in :statusCodes")
+    Collection<ApiRevision> findRevisionsByStatusIn(@Param("statusCodes") List<ApiStatus> statusCodes);
+
+    @Query("select a.id as id, a.revision as revision from Api a")
+    Collection<ApiRevision> findAllRevisions();
+
+    @Query("select a.id from Api a where a.id in :ids")
+    Set<String> findExistingIds(@Param("ids") Collection<String> ids);
+
+    /**
+     * Streams the apis from a cursor instead of loading them all, the caller must hold a transaction
+     * and close the stream
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE))
+    Stream<Api> streamAllByStatusIn(List<ApiStatus> statusCodes);
+
+    /**
+     * @see #streamAllByStatusIn(List)
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE))
+    Stream<Api> streamAllByStatusInAndIdIn(List<ApiStatus> statusCodes, Collection<String> ids);
 }
@@ -0,0 +1,11 @@
+package io.apicollab.server.repository;
+
+/**
+ * Lightweight projection of an api, used to detect changes without loading the api specification.
+ */
+public interface ApiRevision {
+
+    String getId();
+
+    Long getRevision();
+}
@@ -0,0 +1,22 @@
+package io.apicollab.server.repository;
+
+import io.apicollab.server.cache.VersionedCache;
+
+import java.util.Comparator;
+import java.util.function.ToLongBiFunction;
+
+/**
+ * Least recently used cache of search results, bounded by their approximate size in memory.
+ * Results are cached for the version of the index reader they were searched from, a newer version drops all
+ * the entries, so results are reused until the index changes.
+ */
+public class ApiSearchCache<K, V> extends VersionedCache<Long, K, V> {
+
+    /**
+     * @param maxWeight approximate maximum size of the cached results in bytes
+     * @param weigher approximate size of a result in bytes
+     */
+    public ApiSearchCache(long maxWeight, ToLongBiFunction<K, V> weigher) {
+        super(maxWeight, weigher, Comparator.naturalOrder());
+    }
+}
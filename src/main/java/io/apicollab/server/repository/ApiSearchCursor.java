@@ -0,0 +1,44 @@
+package io.apicollab.server.repository;
+
+import io.apicollab.server.exception.InvalidCursorException;
+import lombok.Value;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position of an api in the relevance order of a search: its score, its creation time and its id.
+ * Encoded as an opaque url safe string for clients to pass back.
+ */
+@Value
+public class ApiSearchCursor {
+
+    private static final char SEPARATOR = ':';
+
+    private float score;
+    private long created;
+    private String id;
+
+    public String encode() {
+        String cursor = Integer.toHexString(Float.floatToIntBits(score)) + SEPARATOR + Long.toHexString(created) + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param cursor an encoded cursor
+     * @return The decoded cursor
+     * @throws InvalidCursorException if the cursor was not encoded by {@link #encode()}
+     */
+    public static ApiSearchCursor decode(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = decoded.indexOf(SEPARATOR);
+            int nextSeparator = decoded.indexOf(SEPARATOR, separator + 1);
+            float score = Float.intBitsToFloat(Integer.parseUnsignedInt(decoded.substring(0, separator), 16));
+            long created = Long.parseUnsignedLong(decoded.substring(separator + 1, nextSeparator), 16);
+            return new ApiSearchCursor(score, created, decoded.substring(nextSeparator + 1));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new InvalidCursorException(cursor, e);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package io.apicollab.server.repository;
+
+import lombok.Value;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * One page of api search results, in relevance order
+ *
+ * @param <T> entities or projections of the apis
+ */
+@Value
+public class ApiSearchPage<T> {
+
+    private List<T> apis;
+
+    /**
+     * Number of apis matching the query, on all pages
+     */
+    private int totalCount;
+
+    /**
+     * Opaque cursor to read the next page from, null on the last page
+     */
+    private String nextCursor;
+
+    /**
+     * Number of apis matching the query by value of each facet, e.g. by status, most frequent first.
+     * Only counted for the first page, null on the others.
+     */
+    private Map<String, Map<String, Integer>> facets;
+
+    /**
+     * Highlighted extracts of the specification of each api by api id, null unless requested
+     */
+    private Map<String, List<String>> snippets;
+
+    public ApiSearchPage(List<T> apis, int totalCount, String nextCursor, Map<String, Map<String, Integer>> facets) {
+        this(apis, totalCount, nextCursor, facets, null);
+    }
+
+    public ApiSearchPage(List<T> apis, int totalCount, String nextCursor, Map<String, Map<String, Integer>> facets,
+                         Map<String, List<String>> snippets) {
+        this.apis = apis;
+        this.totalCount = totalCount;
+        this.nextCursor = nextCursor;
+        this.facets = facets;
+        this.snippets = snippets;
+    }
+
+    /**
+     * @return The same page with every api mapped
+     */
+    public <R> ApiSearchPage<R> map(Function<T, R> mapper) {
+        return new ApiSearchPage<>(apis.stream().map(mapper).collect(Collectors.toList()), totalCount, nextCursor, facets, snippets);
+    }
+}
@@ -1,71 +1,455 @@
 package io.apicollab.server.repository;
 
+import io.apicollab.server.cache.FilterCachingPolicy;
+import io.apicollab.server.cache.VersionedCache;
 import io.apicollab.server.constant.ApiStatus;
 import io.apicollab.server.domain.Api;
-import org.apache.commons.lang3.StringUtils;
+import io.apicollab.server.dto.ApiDTO;
+import io.apicollab.server.mapper.ApiFacetsBridge;
+import io.apicollab.server.mapper.ApiTagsBridge;
+import io.apicollab.server.mapper.OpenApiFieldBridge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DocumentStoredFieldVisitor;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexReaderContext;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queries.TermsQuery;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.LRUQueryCache;
+import org.apache.lucene.search.MultiCollector;
+import org.apache.lucene.search.PrefixQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryCache;
+import org.apache.lucene.search.QueryCachingPolicy;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldCollector;
+import org.apache.lucene.util.BytesRef;
+import org.hibernate.search.indexes.IndexReaderAccessor;
 import org.hibernate.search.jpa.FullTextEntityManager;
 import org.hibernate.search.jpa.Search;
+import org.hibernate.search.query.dsl.BooleanJunction;
 import org.hibernate.search.query.dsl.QueryBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.PostConstruct;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
-import java.util.List;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 @Repository
 @Transactional
 public class ApiSearchRepository {
 
+    /**
+     * Most relevant first, then oldest first, ties broken by id so every api has a stable position to continue after
+     */
+    private static final Sort RELEVANCE_SORT = new Sort(SortField.FIELD_SCORE,
+            new SortField(Api.CREATED_SORT_FIELD, SortField.Type.LONG), new SortField(Api.ID_SORT_FIELD, SortField.Type.STRING));
+    private static final String ID_FIELD_NAME = "id";
+    private static final String NAME_FIELD_NAME = "name";
+    private static final String VERSION_FIELD_NAME = "version";
+    private static final String DESCRIPTION_FIELD_NAME = "description";
+    private static final String STATUS_FIELD_NAME = "status";
+    private static final String TAGS_FIELD_NAME = "tags";
+    private static final String APPLICATION_ID_FIELD_NAME = Api.APPLICATION_ID_FIELD;
+    private static final Set<String> ID_FIELDS = Collections.singleton(ID_FIELD_NAME);
+
+    /**
+     * Fields stored in the index to list apis without loading them
+     */
+    private static final Set<String> PROJECTED_FIELDS = new HashSet<>(Arrays.asList(ID_FIELD_NAME, NAME_FIELD_NAME,
+            VERSION_FIELD_NAME, DESCRIPTION_FIELD_NAME, STATUS_FIELD_NAME, TAGS_FIELD_NAME, APPLICATION_ID_FIELD_NAME));
+    private static final ApiTagsBridge TAGS_BRIDGE = new ApiTagsBridge();
+
+    /**
+     * Fields of the parsed specification by their prefix in a search string, e.g. path:/pets or operation:listPets
+     */
+    private static final Map<String, String> FIELD_SUFFIXES = new HashMap<>();
+    private static final Set<String> PREFIX_MATCHED_FIELDS = new HashSet<>(Arrays.asList("path", "server"));
+
+    static {
+        FIELD_SUFFIXES.put("path", OpenApiFieldBridge.PATH_SUFFIX);
+        FIELD_SUFFIXES.put("method", OpenApiFieldBridge.METHOD_SUFFIX);
+        FIELD_SUFFIXES.put("operation", OpenApiFieldBridge.OPERATION_SUFFIX);
+        FIELD_SUFFIXES.put("schema", OpenApiFieldBridge.SCHEMA_SUFFIX);
+        FIELD_SUFFIXES.put("tag", OpenApiFieldBridge.TAG_SUFFIX);
+        FIELD_SUFFIXES.put("server", OpenApiFieldBridge.SERVER_SUFFIX);
+    }
+
+    /**
+     * A field prefix followed by a word or a quoted value, at the start of a word of the search string
+     */
+    private static final Pattern FIELD_CLAUSE = Pattern.compile(
+            "(?<!\\S)(" + String.join("|", FIELD_SUFFIXES.keySet()) + "):(\"[^\"]*\"|\\S+)", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * Facet name by doc values field, see {@link ApiFacetsBridge}
+     */
+    private static final Map<String, String> FACET_FIELDS = new LinkedHashMap<>();
+    private static final int MAX_FACET_VALUES = 20;
+
+    static {
+        FACET_FIELDS.put(Api.FACET_FIELD + ApiFacetsBridge.STATUS_SUFFIX, "status");
+        FACET_FIELDS.put(Api.FACET_FIELD + ApiFacetsBridge.TAG_SUFFIX, "tag");
+        FACET_FIELDS.put(Api.FACET_FIELD + ApiFacetsBridge.APPLICATION_SUFFIX, "application");
+    }
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final String TEXT_FIELD_NAME = "swaggerDefinition";
+    private static final int MAX_SNIPPETS = 3;
+    private static final int SNIPPET_LENGTH = 150;
+    private static final SnippetBuilder SNIPPET_BUILDER = new SnippetBuilder(TEXT_FIELD_NAME, Api.TEXT_FIELD, MAX_SNIPPETS, SNIPPET_LENGTH);
+
+    private static final int MAX_CACHED_FILTERS = 100;
+    private static final long MAX_CACHED_FILTERS_RAM_BYTES = 8 * 1024 * 1024;
+
+    /**
+     * Shared by all searches, entries of closed segments are dropped
+     */
+    private static final QueryCache STATUS_FILTER_CACHE = new LRUQueryCache(MAX_CACHED_FILTERS, MAX_CACHED_FILTERS_RAM_BYTES);
+
+    /**
+     * Caches the documents of the status filter and nothing else
+     */
+    private static final QueryCachingPolicy STATUS_FILTER_CACHING_POLICY = new FilterCachingPolicy(query -> query instanceof TermsQuery);
+
     @PersistenceContext
     private EntityManager entityManager;
 
-    public List<Api> search(String searchString, List<ApiStatus> statusCodes) {
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * Approximate memory used to cache search result pages until the index changes, 0 to disable the cache
+     */
+    @Value("${api-search-cache-max-bytes:8388608}")
+    private long cacheMaxBytes;
+
+    private ApiSearchCache<SearchKey, ApiSearchPage<Document>> cache;
 
-        // lowercase the search terms
-        searchString = searchString.toLowerCase();
+    @PostConstruct
+    public void init() {
+        cache = new ApiSearchCache<>(cacheMaxBytes, ApiSearchRepository::weigh);
+        cache.metrics("apiSearch").bindTo(meterRegistry);
+    }
+
+    public List<Api> search(String searchString, List<ApiStatus> statusCodes) {
+        return search(searchString, statusCodes, Integer.MAX_VALUE, null, false).getApis();
+    }
 
-        // prefix the wild card in for each word
-        searchString = searchString.replaceAll("(\\w)\\s", "$1* ").replaceAll("(\\w)$", "$1*");
+    /**
+     * Reads one page of the apis matching a search, only the apis of that page are loaded
+     *
+     * @param searchString
+     * @param statusCodes
+     * @param limit maximum number of apis in the page
+     * @param cursor position of the last api of the previous page, or null for the first page
+     * @param snippets true to extract the parts of the specifications the search matches
+     * @return The page, with the facet counts of all the apis matching the search on the first page
+     */
+    public ApiSearchPage<Api> search(String searchString, List<ApiStatus> statusCodes, int limit, ApiSearchCursor cursor,
+                                     boolean snippets) {
+        ApiSearchPage<String> page = searchDocuments(searchString, statusCodes, limit, cursor, ID_FIELDS, snippets)
+                .map(document -> document.get(ID_FIELD_NAME));
+        return new ApiSearchPage<>(load(page.getApis()), page.getTotalCount(), page.getNextCursor(), page.getFacets(),
+                page.getSnippets());
+    }
 
+    /**
+     * Reads one page of the apis matching a search from the fields stored in the index, without loading them
+     *
+     * @param searchString
+     * @param statusCodes
+     * @param limit maximum number of apis in the page
+     * @param cursor position of the last api of the previous page, or null for the first page
+     * @param snippets true to extract the parts of the specifications the search matches
+     * @return The page, the apis have no specification, with the facet counts of all the apis matching the search
+     * on the first page
+     */
+    public ApiSearchPage<ApiDTO> searchProjections(String searchString, List<ApiStatus> statusCodes, int limit,
+                                                   ApiSearchCursor cursor, boolean snippets) {
+        return searchDocuments(searchString, statusCodes, limit, cursor, PROJECTED_FIELDS, snippets)
+                .map(ApiSearchRepository::project);
+    }
 
+    private ApiSearchPage<Document> searchDocuments(String searchString, List<ApiStatus> statusCodes, int limit,
+                                                    ApiSearchCursor cursor, Set<String> fields, boolean snippets) {
         FullTextEntityManager fullTextEntityManager
                 = Search.getFullTextEntityManager(entityManager);
+        // Equivalent search strings share their cached results
+        searchString = normalize(searchString);
+        SearchKey key = new SearchKey(searchString, statusCodes, limit, cursor, fields, snippets);
+
+        // Search the index directly, the full text query has no search after
+        IndexReaderAccessor readerAccessor = fullTextEntityManager.getSearchFactory().getIndexReaderAccessor();
+        IndexReader reader = readerAccessor.open(Api.class);
+        long version = readerVersion(reader);
+        ApiSearchPage<Document> cached = cache.get(version, key);
+        if (cached != null) {
+            readerAccessor.close(reader);
+            return cached;
+        }
+        TopDocs topDocs;
+        List<Document> documents = new ArrayList<>();
+        FieldDoc last = null;
+        Map<String, Map<String, Integer>> facets = null;
+        Map<String, List<String>> snippetsById = snippets ? new HashMap<>() : null;
+        try {
+            Query query = buildQuery(fullTextEntityManager, searchString, statusCodes);
+            IndexSearcher searcher = new IndexSearcher(reader);
+            searcher.setQueryCache(STATUS_FILTER_CACHE);
+            searcher.setQueryCachingPolicy(STATUS_FILTER_CACHING_POLICY);
+            // Ties on all the sort values can only be the last api of the previous page, the last document skips it
+            FieldDoc after = cursor == null ? null
+                    : new FieldDoc(Math.max(0, reader.maxDoc() - 1), Float.NaN, new Object[]{cursor.getScore(), cursor.getCreated(), new BytesRef(cursor.getId())});
+            // One more hit tells whether there is a next page, total hits also count the previous pages
+            int numHits = Math.max(1, Math.min(limit < Integer.MAX_VALUE ? limit + 1 : limit, reader.maxDoc()));
+            TopFieldCollector topCollector = TopFieldCollector.create(RELEVANCE_SORT, numHits, after, true, false, false);
+            if (cursor == null) {
+                // The first page counts every matching api by facet in the same pass
+                FacetCountsCollector facetCollector = new FacetCountsCollector(FACET_FIELDS);
+                searcher.search(query, MultiCollector.wrap(topCollector, facetCollector));
+                facets = facetCollector.getCounts(MAX_FACET_VALUES);
+            } else {
+                searcher.search(query, topCollector);
+            }
+            topDocs = topCollector.topDocs();
+            Set<String> prefixes = snippets ? searchPrefixes(fullTextEntityManager, searchString) : null;
+            for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                if (documents.size() == limit) {
+                    last = (FieldDoc) topDocs.scoreDocs[limit - 1];
+                    break;
+                }
+                StoredFieldsVisitor visitor = new StoredFieldsVisitor(fields);
+                searcher.doc(scoreDoc.doc, visitor);
+                Document document = visitor.getDocument();
+                documents.add(document);
+                if (snippets) {
+                    snippetsById.put(document.get(ID_FIELD_NAME), SNIPPET_BUILDER.build(reader, scoreDoc.doc, prefixes));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            readerAccessor.close(reader);
+        }
+
+        String nextCursor = last == null ? null
+                : new ApiSearchCursor((Float) last.fields[0], (Long) last.fields[1], ((BytesRef) last.fields[2]).utf8ToString()).encode();
+        ApiSearchPage<Document> page = new ApiSearchPage<>(Collections.unmodifiableList(documents), topDocs.totalHits,
+                nextCursor, facets, snippetsById);
+        cache.put(version, key, page);
+        return page;
+    }
+
+    /**
+     * @return The words of the search outside of field scoped clauses, analyzed like the query of the prefix field
+     */
+    private static Set<String> searchPrefixes(FullTextEntityManager fullTextEntityManager, String searchString) throws IOException {
+        String text = FIELD_CLAUSE.matcher(searchString).replaceAll(" ");
+        // Sorted, the term vector is read forward
+        Set<String> prefixes = new TreeSet<>();
+        Analyzer analyzer = fullTextEntityManager.getSearchFactory().getAnalyzer(Api.PREFIX_QUERY_ANALYZER);
+        try (TokenStream tokens = analyzer.tokenStream(Api.PREFIX_FIELD, text)) {
+            CharTermAttribute term = tokens.addAttribute(CharTermAttribute.class);
+            tokens.reset();
+            while (tokens.incrementToken()) {
+                prefixes.add(term.toString());
+            }
+            tokens.end();
+        }
+        return prefixes;
+    }
+
+    /**
+     * Trims, lowercases and collapses the whitespace of a search string, searches are case insensitive
+     */
+    private static String normalize(String searchString) {
+        return WHITESPACE.matcher(searchString.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @return A version that grows whenever documents are added to or deleted from the index, the sum of the
+     * versions of its directories, so readers opened before a change are older
+     */
+    private static long readerVersion(IndexReader reader) {
+        if (reader instanceof DirectoryReader) {
+            return ((DirectoryReader) reader).getVersion();
+        }
+        List<IndexReaderContext> children = reader.getContext().children();
+        if (children == null) {
+            throw new IllegalStateException("Index reader without version " + reader);
+        }
+        long version = 0;
+        for (IndexReaderContext child : children) {
+            version += readerVersion(child.reader());
+        }
+        return version;
+    }
+
+    /**
+     * @return The approximate size of a cached page in bytes, with its stored fields, facets and snippets
+     */
+    private static long weigh(SearchKey key, ApiSearchPage<Document> page) {
+        long size = VersionedCache.ENTRY_OVERHEAD + VersionedCache.sizeOf(key.getSearchString())
+                + VersionedCache.sizeOf(page.getNextCursor());
+        for (Document document : page.getApis()) {
+            for (IndexableField field : document) {
+                size += VersionedCache.ENTRY_OVERHEAD + VersionedCache.sizeOf(field.stringValue());
+            }
+        }
+        if (page.getFacets() != null) {
+            for (Map<String, Integer> counts : page.getFacets().values()) {
+                for (String value : counts.keySet()) {
+                    size += VersionedCache.ENTRY_OVERHEAD + VersionedCache.sizeOf(value);
+                }
+            }
+        }
+        if (page.getSnippets() != null) {
+            for (List<String> snippets : page.getSnippets().values()) {
+                for (String snippet : snippets) {
+                    size += VersionedCache.ENTRY_OVERHEAD + VersionedCache.sizeOf(snippet);
+                }
+            }
+        }
+        return size;
+    }
+
+    private static ApiDTO project(Document document) {
+        return ApiDTO.builder()
+                .apiId(document.get(ID_FIELD_NAME))
+                .name(document.get(NAME_FIELD_NAME))
+                .version(document.get(VERSION_FIELD_NAME))
+                .description(document.get(DESCRIPTION_FIELD_NAME))
+                .status(document.get(STATUS_FIELD_NAME))
+                .tags(TAGS_BRIDGE.stringToObject(document.get(TAGS_FIELD_NAME)))
+                .applicationId(document.get(APPLICATION_ID_FIELD_NAME))
+                .build();
+    }
+
+    private static Query buildQuery(FullTextEntityManager fullTextEntityManager, String searchString, List<ApiStatus> statusCodes) {
 
         QueryBuilder queryBuilder = fullTextEntityManager.getSearchFactory()
                 .buildQueryBuilder()
                 .forEntity(Api.class)
+                .overridesForField(Api.PREFIX_FIELD, Api.PREFIX_QUERY_ANALYZER)
                 .get();
 
 
-        // Select status codes
-        Query statusQuery = queryBuilder
-                .simpleQueryString()
-                .onField("status")
-                .matching(StringUtils.join(" ", statusCodes))
-                .createQuery();
+        // Select status codes, the filter is the same for every search and cached
+        List<Term> statusTerms = statusCodes.stream()
+                .map(status -> new Term(STATUS_FIELD_NAME, status.name()))
+                .collect(Collectors.toList());
+
+        BooleanJunction<?> query = queryBuilder
+                .bool()
+                .must(new TermsQuery(statusTerms)).disableScoring();
 
-        Query searchQuery = queryBuilder.simpleQueryString()
-                .onFields("swaggerDefinition")
-                .matching(searchString)
-                .createQuery();
+        // Field scoped clauses only search their own field of the parsed specification
+        Matcher clauses = FIELD_CLAUSE.matcher(searchString);
+        StringBuffer text = new StringBuffer();
+        while (clauses.find()) {
+            query.must(fieldQuery(clauses.group(1).toLowerCase(), clauses.group(2)));
+            clauses.appendReplacement(text, " ");
+        }
+        clauses.appendTail(text);
+        searchString = text.toString().trim();
 
+        if (!searchString.isEmpty()) {
+            // Every word matches as a prefix, a single term of the prefix field
+            Query searchQuery = queryBuilder.simpleQueryString()
+                    .onFields(Api.PREFIX_FIELD)
+                    .matching(searchString)
+                    .createQuery();
+            query.must(searchQuery);
+        }
 
         // Combine query
-        Query query = queryBuilder
-                .bool()
-                .must(statusQuery)
-                .must(searchQuery)
-                .createQuery();
+        return query.createQuery();
+    }
 
-        org.hibernate.search.jpa.FullTextQuery jpaQuery
-                = fullTextEntityManager.createFullTextQuery(query, Api.class);
+    /**
+     * Paths and server urls match from their start, e.g. path:/pets also matches /pets/{petId},
+     * the other fields match whole values
+     */
+    private static Query fieldQuery(String prefix, String value) {
+        if (value.length() > 1 && value.startsWith("\"") && value.endsWith("\"")) {
+            value = value.substring(1, value.length() - 1);
+        }
+        Term term = new Term(Api.OPENAPI_FIELD + FIELD_SUFFIXES.get(prefix), value.trim().toLowerCase(Locale.ROOT));
+        return PREFIX_MATCHED_FIELDS.contains(prefix) ? new PrefixQuery(term) : new TermQuery(term);
+    }
+
+    /**
+     * @return The apis with the given ids, in the same order, leaving out apis deleted in the meantime
+     */
+    private List<Api> load(List<String> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        // Read only, loading must not write apis back and change the index, e.g. null tags read as empty ones
+        Map<String, Api> apis = entityManager.createQuery("select a from Api a where a.id in :ids", Api.class)
+                .setParameter("ids", ids)
+                .setHint(HINT_READONLY, true)
+                .getResultList()
+                .stream()
+                .collect(Collectors.toMap(Api::getId, Function.identity()));
+        return ids.stream().map(apis::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
 
-        List<Api> results = jpaQuery.getResultList();
-        fullTextEntityManager.close();
+    /**
+     * Reads the given stored fields, each stored once, and stops as soon as it has them all or reaches the compressed
+     * specification, stored last, so listings never read it
+     */
+    private static final class StoredFieldsVisitor extends DocumentStoredFieldVisitor {
 
-        return results;
+        private final int fieldCount;
+
+        StoredFieldsVisitor(Set<String> fields) {
+            super(fields);
+            fieldCount = fields.size();
+        }
+
+        @Override
+        public Status needsField(FieldInfo fieldInfo) throws IOException {
+            if (getDocument().getFields().size() == fieldCount || Api.TEXT_FIELD.equals(fieldInfo.name)) {
+                return Status.STOP;
+            }
+            return super.needsField(fieldInfo);
+        }
     }
 
+    @lombok.Value
+    private static class SearchKey {
+        String searchString;
+        List<ApiStatus> statusCodes;
+        int limit;
+        ApiSearchCursor cursor;
+        Set<String> fields;
+        boolean snippets;
+    }
 }
@@ -0,0 +1,105 @@
+package io.apicollab.server.repository;
+
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.LeafCollector;
+import org.apache.lucene.search.Scorer;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Counts the collected documents by each value of some sorted set doc values fields.
+ * Documents are counted by segment ordinal, ordinals are only resolved to values by {@link #getCounts(int)},
+ * which must be called before the reader is closed.
+ */
+class FacetCountsCollector implements Collector {
+
+    /**
+     * Facet name by doc values field
+     */
+    private final Map<String, String> fields;
+    private final List<LeafCounts> leaves = new ArrayList<>();
+
+    /**
+     * @param fields facet name by doc values field
+     */
+    FacetCountsCollector(Map<String, String> fields) {
+        this.fields = fields;
+    }
+
+    @Override
+    public LeafCollector getLeafCollector(LeafReaderContext context) throws IOException {
+        List<LeafCounts> leafCounts = new ArrayList<>(fields.size());
+        for (Map.Entry<String, String> field : fields.entrySet()) {
+            leafCounts.add(new LeafCounts(field.getValue(), DocValues.getSortedSet(context.reader(), field.getKey())));
+        }
+        leaves.addAll(leafCounts);
+        return new LeafCollector() {
+            @Override
+            public void setScorer(Scorer scorer) {
+            }
+
+            @Override
+            public void collect(int doc) {
+                for (LeafCounts counts : leafCounts) {
+                    counts.collect(doc);
+                }
+            }
+        };
+    }
+
+    @Override
+    public boolean needsScores() {
+        return false;
+    }
+
+    /**
+     * @param maxValues maximum number of values per facet
+     * @return The most frequent values of every facet with their counts, most frequent first
+     */
+    Map<String, Map<String, Integer>> getCounts(int maxValues) {
+        Map<String, Map<String, Integer>> counts = new LinkedHashMap<>();
+        fields.values().forEach(facet -> counts.put(facet, new HashMap<>()));
+        for (LeafCounts leaf : leaves) {
+            Map<String, Integer> facetCounts = counts.get(leaf.facet);
+            for (int ord = 0; ord < leaf.counts.length; ord++) {
+                if (leaf.counts[ord] > 0) {
+                    facetCounts.merge(leaf.values.lookupOrd(ord).utf8ToString(), leaf.counts[ord], Integer::sum);
+                }
+            }
+        }
+        Map<String, Map<String, Integer>> top = new LinkedHashMap<>();
+        counts.forEach((facet, facetCounts) -> {
+            Map<String, Integer> values = new LinkedHashMap<>();
+            facetCounts.entrySet().stream()
+                    .sorted(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                    .limit(maxValues)
+                    .forEach(entry -> values.put(entry.getKey(), entry.getValue()));
+            top.put(facet, values);
+        });
+        return top;
+    }
+
+    private static final class LeafCounts {
+
+        private final String facet;
+        private final SortedSetDocValues values;
+        private final int[] counts;
+
+        private LeafCounts(String facet, SortedSetDocValues values) {
+            this.facet = facet;
+            this.values = values;
+            this.counts = new int[(int) values.getValueCount()];
+        }
+
+        private void collect(int doc) {
+            values.setDocument(doc);
+            for (long ord = values.nextOrd(); ord != SortedSetDocValues.NO_MORE_ORDS; ord = values.nextOrd()) {
+                counts[(int) ord]++;
+            }
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package io.apicollab.server.repository;
+
+import org.apache.lucene.document.CompressionTools;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.StringHelper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.zip.DataFormatException;
+
+/**
+ * Extracts the parts of an indexed text where the words of a search match, e.g. "... operationId: <em>listPets</em>
+ * ...". The matches are read from the term vector of the text with their offsets, so the text is not analyzed
+ * again, and the text is read from a compressed stored copy only when something matches, so it is never loaded from
+ * the database. The text is HTML escaped, only the highlighting tags are markup.
+ */
+class SnippetBuilder {
+
+    static final String PRE_TAG = "<em>";
+    static final String POST_TAG = "</em>";
+    private static final String ELLIPSIS = "...";
+
+    /**
+     * Most matches highlighted in a text, the earliest ones are kept and the others are left out of the snippets
+     */
+    private static final int MAX_MATCHES = 100;
+
+    private final String field;
+    private final String textField;
+    private final int maxSnippets;
+    private final int snippetLength;
+
+    /**
+     * @param field field indexed with a term vector with offsets
+     * @param textField field storing the same text compressed
+     * @param maxSnippets maximum number of snippets of a text
+     * @param snippetLength approximate number of characters of a snippet
+     */
+    SnippetBuilder(String field, String textField, int maxSnippets, int snippetLength) {
+        this.field = field;
+        this.textField = textField;
+        this.maxSnippets = maxSnippets;
+        this.snippetLength = snippetLength;
+    }
+
+    /**
+     * @param reader
+     * @param doc
+     * @param prefixes analyzed words of the search, terms starting with them match
+     * @return The snippets of the text of the document in text order, empty when nothing matches
+     */
+    List<String> build(IndexReader reader, int doc, Collection<String> prefixes) throws IOException {
+        if (prefixes.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Terms vector = reader.getTermVector(doc, field);
+        if (vector == null || !vector.hasOffsets()) {
+            return Collections.emptyList();
+        }
+        List<int[]> matches = merge(matches(vector, prefixes));
+        if (matches.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String text = text(reader, doc);
+        if (text == null || matches.get(matches.size() - 1)[1] > text.length()) {
+            return Collections.emptyList();
+        }
+        return snippets(text, matches);
+    }
+
+    private String text(IndexReader reader, int doc) throws IOException {
+        BytesRef compressed = reader.document(doc, Collections.singleton(textField)).getBinaryValue(textField);
+        if (compressed == null) {
+            return null;
+        }
+        try {
+            return CompressionTools.decompressString(compressed);
+        } catch (DataFormatException e) {
+            throw new IOException("Invalid compressed text of document " + doc, e);
+        }
+    }
+
+    /**
+     * @return The earliest matches in no particular order, the terms of a prefix are enumerated in term order so
+     * the offsets of all of them are looked at before keeping the first ones
+     */
+    private static List<int[]> matches(Terms vector, Collection<String> prefixes) throws IOException {
+        // Latest start first, to drop it when an earlier match comes
+        PriorityQueue<int[]> earliest = new PriorityQueue<>(MAX_MATCHES + 1,
+                Comparator.comparingInt((int[] match) -> match[0]).reversed());
+        TermsEnum terms = vector.iterator();
+        PostingsEnum postings = null;
+        for (String prefix : prefixes) {
+            BytesRef prefixBytes = new BytesRef(prefix);
+            if (terms.seekCeil(prefixBytes) == TermsEnum.SeekStatus.END) {
+                continue;
+            }
+            do {
+                if (!StringHelper.startsWith(terms.term(), prefixBytes)) {
+                    break;
+                }
+                postings = terms.postings(postings, PostingsEnum.OFFSETS);
+                postings.nextDoc();
+                for (int i = 0; i < postings.freq(); i++) {
+                    postings.nextPosition();
+                    if (earliest.size() == MAX_MATCHES && postings.startOffset() >= earliest.peek()[0]) {
+                        continue;
+                    }
+                    earliest.add(new int[]{postings.startOffset(), postings.endOffset()});
+                    if (earliest.size() > MAX_MATCHES) {
+                        earliest.poll();
+                    }
+                }
+            } while (terms.next() != null);
+        }
+        return new ArrayList<>(earliest);
+    }
+
+    /**
+     * @return The matches in text order, overlapping ones merged, e.g. a word and a part of it
+     */
+    private static List<int[]> merge(List<int[]> matches) {
+        matches.sort(Comparator.comparingInt(match -> match[0]));
+        List<int[]> merged = new ArrayList<>();
+        for (int[] match : matches) {
+            int[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && match[0] <= last[1]) {
+                last[1] = Math.max(last[1], match[1]);
+            } else {
+                merged.add(new int[]{match[0], match[1]});
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Starts a snippet a little before each match not covered by the previous snippet
+     */
+    private List<String> snippets(String text, List<int[]> matches) {
+        List<String> snippets = new ArrayList<>();
+        int i = 0;
+        while (i < matches.size() && snippets.size() < maxSnippets) {
+            int[] first = matches.get(i);
+            int start = Math.max(0, first[0] - snippetLength / 3);
+            int end = Math.min(text.length(), Math.max(start + snippetLength, first[1]));
+            StringBuilder snippet = new StringBuilder();
+            if (start > 0) {
+                snippet.append(ELLIPSIS);
+            }
+            int position = start;
+            for (; i < matches.size() && matches.get(i)[0] < end; i++) {
+                int[] match = matches.get(i);
+                appendText(snippet, text.substring(position, match[0]));
+                position = Math.min(match[1], end);
+                snippet.append(PRE_TAG);
+                appendText(snippet, text.substring(match[0], position));
+                snippet.append(POST_TAG);
+            }
+            appendText(snippet, text.substring(position, end));
+            if (end < text.length()) {
+                snippet.append(ELLIPSIS);
+            }
+            snippets.add(snippet.toString().trim());
+        }
+        return snippets;
+    }
+
+    /**
+     * Appends text with its whitespace collapsed, e.g. indentation, and escaped as HTML
+     */
+    private static void appendText(StringBuilder snippet, String text) {
+        boolean whitespace = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                whitespace = true;
+                continue;
+            }
+            if (whitespace) {
+                snippet.append(' ');
+                whitespace = false;
+            }
+            switch (c) {
+                case '<':
+                    snippet.append("&lt;");
+                    break;
+                case '>':
+                    snippet.append("&gt;");
+                    break;
+                case '&':
+                    snippet.append("&amp;");
+                    break;
+                case '"':
+                    snippet.append("&quot;");
+                    break;
+                default:
+                    snippet.append(c);
+            }
+        }
+        if (whitespace) {
+            snippet.append(' ');
+        }
+    }
+}
@@ -3,18 +3,26 @@ package io.apicollab.server.service;
 import io.apicollab.server.constant.ApiStatus;
 import io.apicollab.server.domain.Api;
 import io.apicollab.server.domain.Application;
+import io.apicollab.server.dto.ApiDTO;
+import io.apicollab.server.event.ApiChangedEvent;
 import io.apicollab.server.exception.ApiExistsException;
+import io.apicollab.server.exception.InvalidCursorException;
 import io.apicollab.server.exception.NotFoundException;
 import io.apicollab.server.repository.ApiRepository;
+import io.apicollab.server.repository.ApiRevision;
+import io.apicollab.server.repository.ApiSearchCursor;
+import io.apicollab.server.repository.ApiSearchPage;
 import io.apicollab.server.repository.ApiSearchRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Collection;
-import java.util.Collections;
-import java.util.List;
-import java.util.Optional;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import static java.util.Arrays.asList;
 
@@ -25,6 +33,12 @@ public class ApiService {
     private ApiRepository apiRepository;
     @Autowired
     private ApiSearchRepository searchRepository;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private static final int MAX_IDS_PER_QUERY = 500;
 
     List<ApiStatus> searchableStatusCodes = asList(ApiStatus.BETA, ApiStatus.STABLE, ApiStatus.DEPRECATED);
     
@@ -35,7 +49,9 @@ public class ApiService {
             throw new ApiExistsException(dbApi.getApplication().getName(), dbApi.getName(), dbApi.getVersion());
         });
         api.setApplication(application);
-        return apiRepository.save(api);
+        Api dbApi = apiRepository.save(api);
+        eventPublisher.publishEvent(ApiChangedEvent.created(dbApi));
+        return dbApi;
     }
 
     @Transactional
@@ -43,6 +59,7 @@ public class ApiService {
         Api dbApi = findOne(apiId);
         dbApi.setStatus(api.getStatus());
         apiRepository.save(dbApi);
+        eventPublisher.publishEvent(ApiChangedEvent.updated(dbApi));
     }
 
     public Api findOne(String id) {
@@ -58,6 +75,54 @@ public class ApiService {
         return apiRepository.findAllByStatusIn(searchableStatusCodes);
     }
 
+    public Collection<ApiRevision> getAllRevisions() {
+        return apiRepository.findRevisionsByStatusIn(searchableStatusCodes);
+    }
+
+    /**
+     * Reads the searchable apis in batches, for background jobs that must not hold the whole catalog in memory.
+     * Apis are streamed from a database cursor and each batch is detached once it has been consumed.
+     *
+     * @param ids the apis to read, or null for all of them
+     * @param batchSize
+     * @param consumer called with each batch, whose apis are only managed during the call
+     */
+    @Transactional(readOnly = true)
+    public void forEachSearchableBatch(Collection<String> ids, int batchSize, Consumer<List<Api>> consumer) {
+        if (ids == null) {
+            try (Stream<Api> apis = apiRepository.streamAllByStatusIn(searchableStatusCodes)) {
+                consumeInBatches(apis, batchSize, consumer);
+            }
+            return;
+        }
+        // Keep the number of query parameters bounded
+        List<String> idList = new ArrayList<>(ids);
+        for (int i = 0; i < idList.size(); i += MAX_IDS_PER_QUERY) {
+            List<String> chunk = idList.subList(i, Math.min(idList.size(), i + MAX_IDS_PER_QUERY));
+            try (Stream<Api> apis = apiRepository.streamAllByStatusInAndIdIn(searchableStatusCodes, chunk)) {
+                consumeInBatches(apis, batchSize, consumer);
+            }
+        }
+    }
+
+    private void consumeInBatches(Stream<Api> apis, int batchSize, Consumer<List<Api>> consumer) {
+        List<Api> batch = new ArrayList<>(batchSize);
+        Iterator<Api> iterator = apis.iterator();
+        while (iterator.hasNext()) {
+            batch.add(iterator.next());
+            if (batch.size() == batchSize || !iterator.hasNext()) {
+                consumer.accept(batch);
+                // Let the consumed apis be garbage collected
+                entityManager.clear();
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+    }
+
+    public boolean isSearchable(Api api) {
+        return api != null && searchableStatusCodes.contains(api.getStatus());
+    }
+
     public Collection<Api> search(String searchQuery) {
         if (searchQuery == null || searchQuery.isEmpty()) {
             return Collections.emptyList();
@@ -65,11 +130,60 @@ public class ApiService {
         return searchRepository.search(searchQuery, searchableStatusCodes);
     }
 
+    /**
+     * @param searchQuery
+     * @param limit maximum number of apis to return
+     * @param cursor cursor of the previous page, or null for the first page
+     * @return One page of the searchable apis matching the query, in relevance order
+     * @throws InvalidCursorException if the cursor is invalid
+     */
+    public ApiSearchPage<Api> search(String searchQuery, int limit, String cursor) {
+        return search(searchQuery, limit, cursor, false);
+    }
+
+    /**
+     * @param snippets true to extract the parts of the specifications the query matches
+     * @see #search(String, int, String)
+     */
+    public ApiSearchPage<Api> search(String searchQuery, int limit, String cursor, boolean snippets) {
+        if (searchQuery == null || searchQuery.isEmpty()) {
+            return new ApiSearchPage<>(Collections.emptyList(), 0, null, null);
+        }
+        return searchRepository.search(searchQuery, searchableStatusCodes, limit, decodeCursor(cursor), snippets);
+    }
+
+    /**
+     * Same as {@link #search(String, int, String)}, reading the listed fields of the apis from the search index
+     * instead of loading them
+     *
+     * @return One page of the searchable apis matching the query, without their specification
+     * @throws InvalidCursorException if the cursor is invalid
+     */
+    public ApiSearchPage<ApiDTO> searchProjections(String searchQuery, int limit, String cursor) {
+        return searchProjections(searchQuery, limit, cursor, false);
+    }
+
+    /**
+     * @param snippets true to extract the parts of the specifications the query matches
+     * @see #searchProjections(String, int, String)
+     */
+    public ApiSearchPage<ApiDTO> searchProjections(String searchQuery, int limit, String cursor, boolean snippets) {
+        if (searchQuery == null || searchQuery.isEmpty()) {
+            return new ApiSearchPage<>(Collections.emptyList(), 0, null, null);
+        }
+        return searchRepository.searchProjections(searchQuery, searchableStatusCodes, limit, decodeCursor(cursor), snippets);
+    }
+
+    private static ApiSearchCursor decodeCursor(String cursor) {
+        return cursor == null ? null : ApiSearchCursor.decode(cursor);
+    }
+
     public void delete(String id) {
         if (!apiRepository.existsById(id)) {
             throw new NotFoundException();
         }
         apiRepository.deleteById(id);
+        eventPublisher.publishEvent(ApiChangedEvent.deleted(id));
     }
 
 }
@@ -10,6 +10,7 @@ import io.swagger.v3.oas.models.OpenAPI;
 import io.swagger.v3.oas.models.info.Info;
 import io.swagger.v3.parser.core.models.SwaggerParseResult;
 import lombok.experimental.UtilityClass;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 
 import java.util.List;
@@ -22,6 +23,7 @@ import static java.util.Arrays.asList;
  *
  */
 @UtilityClass
+@Slf4j
 public class ApiSpecParserService {
 
     /**
@@ -44,6 +46,21 @@ public class ApiSpecParserService {
         return result;
     }
 
+    /**
+     * Parses a specification in to the OpenAPI model, Swagger 2 documents are converted.
+     * Unlike {@link #parse(String)} nothing is validated.
+     * @param spec
+     * @return The model, null when the specification cannot be parsed
+     */
+    public static OpenAPI parseOpenAPI(String spec) {
+        try {
+            return new OpenAPIParser().readContents(spec, null, null).getOpenAPI();
+        } catch (RuntimeException e) {
+            log.debug("Failed to parse specification", e);
+            return null;
+        }
+    }
+
     private ApiDTO parseOAS(String oasString){
 
         SwaggerParseResult result = new OpenAPIParser().readContents(oasString, null,  null);
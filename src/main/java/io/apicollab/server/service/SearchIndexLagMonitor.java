@@ -0,0 +1,168 @@
+package io.apicollab.server.service;
+
+import io.apicollab.server.domain.Api;
+import io.apicollab.server.event.ApiChangedEvent;
+import io.apicollab.server.repository.ApiRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.hibernate.search.indexes.IndexReaderAccessor;
+import org.hibernate.search.jpa.Search;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Measures how stale the api search index is. Changes are indexed asynchronously once their transaction has
+ * committed, every committed change is tracked until the index shows it: the api with at least its revision,
+ * or no api for a deletion. A deletion supersedes the other changes of an api, changes of apis deleted without
+ * an event are dropped.
+ * The lag is the age of the oldest change the index does not show yet.
+ */
+@Slf4j
+@Service
+public class SearchIndexLagMonitor {
+
+    private static final String ID_FIELD_NAME = "id";
+    private static final long DELETED = -1;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ApiRepository apiRepository;
+
+    /**
+     * Changes the index does not show yet by api id, only the oldest time and newest revision of an api are kept
+     */
+    private final Map<String, PendingChange> pending = new ConcurrentHashMap<>();
+
+    private volatile long lagMillis;
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("api.search.index.lag", this, SearchIndexLagMonitor::getLagMillis)
+                .description("Age of the oldest committed api change not visible in the search index")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        Gauge.builder("api.search.index.pending", pending, Map::size)
+                .description("Committed api changes not visible in the search index")
+                .register(meterRegistry);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onApiChanged(ApiChangedEvent event) {
+        long revision = event.getType() == ApiChangedEvent.Type.DELETED ? DELETED : event.getApi().getRevision();
+        PendingChange change = new PendingChange(revision, System.nanoTime());
+        // Events of concurrent transactions may arrive out of order, ids of deleted apis are never reused
+        pending.merge(event.getApiId(), change, (older, newer) -> new PendingChange(
+                older.revision == DELETED || newer.revision == DELETED ? DELETED : Math.max(older.revision, newer.revision),
+                older.sinceNanos));
+    }
+
+    /**
+     * @return The lag as of the last check, in milliseconds
+     */
+    public long getLagMillis() {
+        return lagMillis;
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Forgets the changes the index now shows and updates the lag with the oldest remaining one
+     */
+    @Scheduled(fixedDelayString = "${api-search-index-lag-check-milliseconds:1000}")
+    @Transactional(readOnly = true)
+    public void check() {
+        if (pending.isEmpty()) {
+            lagMillis = 0;
+            return;
+        }
+        IndexReaderAccessor readerAccessor = Search.getFullTextEntityManager(entityManager).getSearchFactory().getIndexReaderAccessor();
+        IndexReader reader = readerAccessor.open(Api.class);
+        long now = System.nanoTime();
+        long oldest = now;
+        try {
+            IndexSearcher searcher = new IndexSearcher(reader);
+            Map<String, PendingChange> unindexed = new HashMap<>();
+            for (Map.Entry<String, PendingChange> entry : pending.entrySet()) {
+                if (isIndexed(searcher, entry.getKey(), entry.getValue().revision)) {
+                    // A newer change of the same api stays pending
+                    pending.remove(entry.getKey(), entry.getValue());
+                } else {
+                    unindexed.put(entry.getKey(), entry.getValue());
+                }
+            }
+            // Apis deleted without an event, e.g. along with their application, never show up in the index
+            Set<String> updatedIds = unindexed.entrySet().stream()
+                    .filter(entry -> entry.getValue().revision != DELETED)
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toSet());
+            Set<String> existingIds = updatedIds.isEmpty() ? Collections.emptySet() : apiRepository.findExistingIds(updatedIds);
+            for (Map.Entry<String, PendingChange> entry : unindexed.entrySet()) {
+                if (updatedIds.contains(entry.getKey()) && !existingIds.contains(entry.getKey())) {
+                    pending.remove(entry.getKey(), entry.getValue());
+                } else {
+                    oldest = Math.min(oldest, entry.getValue().sinceNanos);
+                }
+            }
+        } catch (IOException e) {
+            log.error("Failed to check the search index lag", e);
+        } finally {
+            readerAccessor.close(reader);
+        }
+        lagMillis = TimeUnit.NANOSECONDS.toMillis(now - oldest);
+    }
+
+    private static boolean isIndexed(IndexSearcher searcher, String apiId, long revision) throws IOException {
+        TopDocs topDocs = searcher.search(new TermQuery(new Term(ID_FIELD_NAME, apiId)), 1);
+        if (revision == DELETED) {
+            return topDocs.totalHits == 0;
+        }
+        if (topDocs.totalHits == 0) {
+            return false;
+        }
+        // Read from the doc values, loading the stored fields would read the specification too
+        int doc = topDocs.scoreDocs[0].doc;
+        List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
+        LeafReaderContext leaf = leaves.get(ReaderUtil.subIndex(doc, leaves));
+        NumericDocValues revisions = leaf.reader().getNumericDocValues(Api.REVISION_SORT_FIELD);
+        return revisions != null && revisions.get(doc - leaf.docBase) >= revision;
+    }
+
+    @AllArgsConstructor
+    private static final class PendingChange {
+        private final long revision;
+        private final long sinceNanos;
+    }
+}
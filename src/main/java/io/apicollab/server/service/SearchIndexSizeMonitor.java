@@ -0,0 +1,101 @@
+package io.apicollab.server.service;
+
+import io.apicollab.server.domain.Api;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SegmentReader;
+import org.apache.lucene.index.Terms;
+import org.hibernate.search.indexes.IndexReaderAccessor;
+import org.hibernate.search.jpa.Search;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reports the size of the api search index, and the number of terms of the specification with and without
+ * its prefixes, to weigh the space taken by prefix search against its speed.
+ */
+@Slf4j
+@Service
+public class SearchIndexSizeMonitor {
+
+    private static final String TEXT_FIELD_NAME = "swaggerDefinition";
+    private static final List<String> TERM_FIELDS = Arrays.asList(TEXT_FIELD_NAME, Api.PREFIX_FIELD);
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private volatile long sizeInBytes;
+
+    private final Map<String, Long> termCounts = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("api.search.index.size", this, SearchIndexSizeMonitor::getSizeInBytes)
+                .description("Size of the segments of the api search index")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        for (String field : TERM_FIELDS) {
+            termCounts.put(field, 0L);
+            Gauge.builder("api.search.index.terms", termCounts, counts -> counts.get(field))
+                    .tag("field", field)
+                    .description("Distinct terms of the field summed over the segments of the api search index")
+                    .register(meterRegistry);
+        }
+    }
+
+    public long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    /**
+     * @return The number of distinct terms of a field in each segment, summed over the segments
+     */
+    public long getTermCount(String field) {
+        return termCounts.getOrDefault(field, 0L);
+    }
+
+    @Scheduled(fixedDelayString = "${api-search-index-size-check-milliseconds:60000}")
+    @Transactional(readOnly = true)
+    public void check() {
+        IndexReaderAccessor readerAccessor = Search.getFullTextEntityManager(entityManager).getSearchFactory().getIndexReaderAccessor();
+        IndexReader reader = readerAccessor.open(Api.class);
+        try {
+            long size = 0;
+            long[] terms = new long[TERM_FIELDS.size()];
+            for (LeafReaderContext context : reader.leaves()) {
+                if (context.reader() instanceof SegmentReader) {
+                    size += ((SegmentReader) context.reader()).getSegmentInfo().sizeInBytes();
+                }
+                for (int i = 0; i < terms.length; i++) {
+                    Terms fieldTerms = context.reader().terms(TERM_FIELDS.get(i));
+                    terms[i] += fieldTerms == null ? 0 : Math.max(0, fieldTerms.size());
+                }
+            }
+            sizeInBytes = size;
+            for (int i = 0; i < terms.length; i++) {
+                termCounts.put(TERM_FIELDS.get(i), terms[i]);
+            }
+        } catch (IOException e) {
+            log.error("Failed to measure the search index size", e);
+        } finally {
+            readerAccessor.close(reader);
+        }
+    }
+}
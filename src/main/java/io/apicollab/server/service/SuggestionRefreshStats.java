@@ -0,0 +1,25 @@
+package io.apicollab.server.service;
+
+import lombok.Value;
+
+/**
+ * Outcome of a single suggestion reconciliation pass.
+ */
+@Value
+public class SuggestionRefreshStats {
+
+    /**
+     * Number of api specifications that were tokenized and indexed
+     */
+    private final int processed;
+
+    /**
+     * Number of api specifications skipped because their revision was already indexed
+     */
+    private final int skipped;
+
+    /**
+     * Number of api specifications removed because they were deleted or are no longer visible
+     */
+    private final int removed;
+}
@@ -1,135 +1,558 @@
 package io.apicollab.server.service;
 
+import io.apicollab.server.constant.ApiStatus;
 import io.apicollab.server.domain.Api;
+import io.apicollab.server.event.ApiChangedEvent;
+import io.apicollab.server.repository.ApiRevision;
+import io.apicollab.server.service.suggestion.InfixSuggestionEngine;
+import io.apicollab.server.service.suggestion.KeywordExtractor;
+import io.apicollab.server.service.suggestion.OpenApiKeywordExtractor;
+import io.apicollab.server.service.suggestion.PhraseExtractor;
+import io.apicollab.server.service.suggestion.PhraseSuggestionEngine;
+import io.apicollab.server.service.suggestion.SuggestionCache;
+import io.apicollab.server.service.suggestion.QuerySuggestionEngine;
+import io.apicollab.server.service.suggestion.SuggestionDocumentStore;
+import io.apicollab.server.service.suggestion.SuggestionEngine;
+import io.apicollab.server.service.suggestion.SuggestionResults;
+import io.apicollab.server.service.suggestion.TextKeywordExtractor;
+import io.apicollab.server.service.suggestion.SuggestionVocabulary;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.swagger.v3.oas.models.OpenAPI;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.lucene.analysis.standard.StandardAnalyzer;
-import org.apache.lucene.document.Document;
-import org.apache.lucene.document.Field;
-import org.apache.lucene.document.TextField;
-import org.apache.lucene.index.*;
-import org.apache.lucene.queryparser.flexible.core.QueryNodeException;
-import org.apache.lucene.queryparser.flexible.standard.StandardQueryParser;
-import org.apache.lucene.search.*;
-import org.apache.lucene.store.RAMDirectory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
 import org.springframework.util.CollectionUtils;
+import org.springframework.util.DigestUtils;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 public class SuggestionService {
 
-    private static final String INDEX_FIELD_NAME = "suggestionId";
-    private static final String REGEX_INVALID_CHAR = "[\\s@\"&:{}/#.,?$+-]+";
-    private static final int FUZZY_MIN_WORD_LENGTH = 4;
+    private static final int MAX_RESULTS = 10;
 
-    private RAMDirectory directory = new RAMDirectory();
-    private IndexWriter indexWriter;
-    private SearcherManager searcherManager;
+    /**
+     * Maximum number of documents extracted by one task and indexed together
+     */
+    private static final int MAX_BATCH_SIZE = 32;
+
+    /**
+     * Number of api specifications read from the database and indexed at a time by a refresh
+     */
+    private static final int REFRESH_BATCH_SIZE = 64;
+
+    static final String ENGINE_QUERY = "query";
+    static final String ENGINE_INFIX = "infix";
+
+    static final String TYPOS_FUZZY = "fuzzy";
+    static final String TYPOS_DELETES = "deletes";
+
+    static final String EXTRACTION_TEXT = "text";
+    static final String EXTRACTION_MODEL = "model";
+
+    /**
+     * Prefixes of the criteria suggestions can be restricted to, and separator of the criteria of a scope
+     */
+    private static final String SCOPE_APPLICATION = "application:";
+    private static final String SCOPE_STATUS = "status:";
+    private static final String SCOPE_TAG = "tag:";
+    private static final String SCOPE_SEPARATOR = "|";
+
+    @Value("${api-suggestions-engine:" + ENGINE_QUERY + "}")
+    private String engineType;
+
+    /**
+     * How the query engine corrects typos, the deletion dictionary answers faster but takes more memory
+     */
+    @Value("${api-suggestions-typo-correction:" + TYPOS_FUZZY + "}")
+    private String typoCorrection;
+
+    @Value("${api-suggestions-extraction:" + EXTRACTION_TEXT + "}")
+    private String extractionMode;
+
+    private KeywordExtractor extractor;
+
+    /**
+     * Directory to persist the suggestion index in, blank to keep it on the heap and rebuild it on every start
+     */
+    @Value("${api-suggestions-index-path:}")
+    private String indexPath;
+
+    private SuggestionEngine engine;
+
+    /**
+     * Completes multi-word phrases of operation summaries, paths and schema names besides single keywords
+     */
+    @Value("${api-suggestions-phrases:true}")
+    private boolean phrasesEnabled;
+
+    private final KeywordExtractor phraseExtractor = new PhraseExtractor();
+
+    /**
+     * Null unless phrases are enabled
+     */
+    private SuggestionEngine phraseEngine;
+    private SuggestionCache phraseCache;
+
+    @Value("${api-suggestions-cache-max-bytes:4194304}")
+    private long cacheMaxBytes;
+
+    /**
+     * Results of the most recent lookups, most partial words are asked for again and again while users type
+     */
+    private SuggestionCache cache;
+
+    /**
+     * Time budget of a lookup in milliseconds, 0 for none
+     */
+    @Value("${api-suggestions-search-timeout-milliseconds:100}")
+    private long searchTimeout;
+
+    /**
+     * Keywords of every indexed document, only kept when the index is persistent
+     */
+    private SuggestionDocumentStore documentStore;
+
+    private final SuggestionVocabulary vocabulary = new SuggestionVocabulary();
+    private final SuggestionVocabulary phraseVocabulary = new SuggestionVocabulary();
+
+    /**
+     * Revision of each api specification that is currently indexed, keyed by api id
+     */
+    private final Map<String, Long> indexedRevisions = new ConcurrentHashMap<>();
+
+    @Getter
+    private volatile SuggestionRefreshStats lastRefreshStats = new SuggestionRefreshStats(0, 0, 0);
+    private Counter processedCounter;
+    private Counter skippedCounter;
+    private Counter removedCounter;
+    private Counter timeoutCounter;
+
+    /**
+     * Keeps the vocabulary and the engine in step when several documents are indexed concurrently
+     */
+    private final Object indexLock = new Object();
+
+    /**
+     * Threads extracting keywords when many documents are indexed at once, 0 for half the available processors
+     */
+    @Value("${api-suggestions-indexing-threads:0}")
+    private int indexingThreads;
+
+    private ExecutorService indexingExecutor;
+
+    /**
+     * Index api changes on the indexing threads instead of on the thread committing them, e.g. a request
+     */
+    @Value("${api-suggestions-indexing-background:true}")
+    private boolean background;
 
     @Autowired
     private ApiService apiService;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @PostConstruct
     protected void initialize() throws IOException {
-        IndexWriterConfig config = new IndexWriterConfig(new StandardAnalyzer());
-        config.setOpenMode(IndexWriterConfig.OpenMode.CREATE);
-        indexWriter = new IndexWriter(directory, config);
-        searcherManager = new SearcherManager(indexWriter, null);
+        extractor = createExtractor(extractionMode);
+        if (indexingThreads <= 0) {
+            indexingThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        }
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("suggestion-indexing-");
+        threadFactory.setDaemon(true);
+        indexingExecutor = Executors.newFixedThreadPool(indexingThreads, threadFactory);
+        cache = new SuggestionCache(cacheMaxBytes);
+        cache.metrics("suggestions").bindTo(meterRegistry);
+        if (phrasesEnabled) {
+            phraseCache = new SuggestionCache(cacheMaxBytes);
+            phraseCache.metrics("phrases").bindTo(meterRegistry);
+        }
+        if (StringUtils.isBlank(indexPath)) {
+            engine = createEngine(engineType, typoCorrection, null, vocabulary::scopes);
+            if (phrasesEnabled) {
+                phraseEngine = new PhraseSuggestionEngine(null, phraseVocabulary::scopes);
+            }
+            log.info("Using '{}' suggestion engine with '{}' keyword extraction", engineType, extractionMode);
+        } else {
+            // Keywords differ by extraction mode, so each mode keeps its own documents
+            Path path = Paths.get(indexPath, extractionMode);
+            engine = createEngine(engineType, typoCorrection, path.resolve(engineType), vocabulary::scopes);
+            if (phrasesEnabled) {
+                phraseEngine = new PhraseSuggestionEngine(path.resolve("phrases"), phraseVocabulary::scopes);
+            }
+            documentStore = new SuggestionDocumentStore(path.resolve("documents"));
+            log.info("Using '{}' suggestion engine with '{}' keyword extraction persisted in {}", engineType, extractionMode, path);
+            restore();
+        }
+        processedCounter = meterRegistry.counter("api.suggestions.refresh.documents", "result", "processed");
+        skippedCounter = meterRegistry.counter("api.suggestions.refresh.documents", "result", "skipped");
+        removedCounter = meterRegistry.counter("api.suggestions.refresh.documents", "result", "removed");
+        timeoutCounter = meterRegistry.counter("api.suggestions.search.timeouts");
+        Gauge.builder("api.suggestions.refresh.last.documents", this, s -> s.lastRefreshStats.getProcessed())
+                .tag("result", "processed")
+                .register(meterRegistry);
+        Gauge.builder("api.suggestions.refresh.last.documents", this, s -> s.lastRefreshStats.getSkipped())
+                .tag("result", "skipped")
+                .register(meterRegistry);
+        Gauge.builder("api.suggestions.refresh.last.documents", this, s -> s.lastRefreshStats.getRemoved())
+                .tag("result", "removed")
+                .register(meterRegistry);
+        Gauge.builder("api.suggestions.index.generation", engine, SuggestionEngine::getGeneration)
+                .register(meterRegistry);
+        Gauge.builder("api.suggestions.engine.memory", engine, SuggestionEngine::getMemoryUsage)
+                .baseUnit("bytes")
+                .description("The approximate heap used by the engine besides the index, e.g. by a deletion dictionary")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    protected void close() throws IOException {
+        indexingExecutor.shutdownNow();
+        engine.close();
+        if (phraseEngine != null) {
+            phraseEngine.close();
+        }
+        if (documentStore != null) {
+            documentStore.close();
+        }
+    }
+
+    static SuggestionEngine createEngine(String type, String typoCorrection, Path indexPath,
+                                         Function<String, Set<String>> scopes) throws IOException {
+        switch (type) {
+            case ENGINE_QUERY:
+                return new QuerySuggestionEngine(indexPath, scopes, isDeletionDictionary(typoCorrection));
+            case ENGINE_INFIX:
+                return new InfixSuggestionEngine(indexPath, scopes);
+            default:
+                throw new IllegalArgumentException("Unknown suggestion engine '" + type + "'");
+        }
+    }
+
+    private static boolean isDeletionDictionary(String typoCorrection) {
+        switch (typoCorrection) {
+            case TYPOS_FUZZY:
+                return false;
+            case TYPOS_DELETES:
+                return true;
+            default:
+                throw new IllegalArgumentException("Unknown typo correction '" + typoCorrection + "'");
+        }
+    }
+
+    static KeywordExtractor createExtractor(String mode) {
+        switch (mode) {
+            case EXTRACTION_TEXT:
+                return new TextKeywordExtractor();
+            case EXTRACTION_MODEL:
+                return new OpenApiKeywordExtractor();
+            default:
+                throw new IllegalArgumentException("Unknown keyword extraction '" + mode + "'");
+        }
     }
 
     /**
-     * Periodically refresh the keywords based on the api specifications
+     * Restores the vocabulary and the indexed revisions from the persisted documents, and rebuilds the keyword
+     * index when the fingerprint of its last commit does not match them, e.g. after a crash between the two commits.
+     * Apis changed or deleted while the server was down are caught up by the first reconciliation,
+     * which runs right after startup and only loads the apis whose revision differs.
      */
-    @Scheduled(fixedDelayString = "${api-suggestions-refresh-rate-milliseconds}")
-    public void processAllApiDocuments() {
-        log.debug("Refreshing Api suggestions");
-        List<String> specs = apiService.getAll().stream().map(Api::getSwaggerDefinition).collect(Collectors.toList());
-        processDocuments(specs);
-        log.debug("Refreshing Api suggestions complete");
+    private void restore() throws IOException {
+        documentStore.forEach(doc -> {
+            vocabulary.put(doc.getId(), doc.getCounts(), doc.getScopes());
+            phraseVocabulary.put(doc.getId(), doc.getPhrases(), doc.getScopes());
+            if (doc.getRevision() != null) {
+                indexedRevisions.put(doc.getId(), doc.getRevision());
+            }
+        });
+        if (!engine.isConsistent(vocabulary.fingerprint())) {
+            log.warn("Suggestion index does not match the persisted documents, rebuilding it");
+            engine.rebuild(vocabulary::weights);
+            engine.refresh(vocabulary.fingerprint());
+        }
+        if (phraseEngine != null && !phraseEngine.isConsistent(phraseVocabulary.fingerprint())) {
+            log.warn("Phrase index does not match the persisted documents, rebuilding it");
+            phraseEngine.rebuild(phraseVocabulary::weights);
+            phraseEngine.refresh(phraseVocabulary.fingerprint());
+        }
+        log.info("Restored {} suggestion documents with {} keywords", documentStore.size(), vocabulary.size());
     }
 
     /**
-     * Performs fuzzy search and wildcard search for a given word
+     * Incrementally index the keywords of a created or updated api once its transaction has committed, in the
+     * background so the change does not wait for the specification to be parsed and the index to be committed.
+     * Keywords of deleted or archived apis are removed unless another api still uses them.
      *
-     * @param partialKeyword
-     * @return The matching suggestions
+     * @param event
      */
-    public List<String> search(String partialKeyword) {
-        List<String> results = new ArrayList<>();
-        if(StringUtils.isBlank(partialKeyword)) {
-            return results;
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onApiChanged(ApiChangedEvent event) {
+        Runnable indexing;
+        if (event.getType() == ApiChangedEvent.Type.DELETED || !apiService.isSearchable(event.getApi())) {
+            indexing = () -> {
+                log.debug("Removing Api suggestions for {}", event);
+                removeApis(Collections.singletonList(event.getApiId()), Collections.emptyMap());
+            };
+        } else {
+            indexing = () -> {
+                log.debug("Indexing Api suggestions for {}", event);
+                processApis(Collections.singletonList(event.getApi()));
+            };
+        }
+        if (!background) {
+            indexing.run();
+            return;
+        }
+        indexingExecutor.execute(() -> {
+            try {
+                indexing.run();
+            } catch (RuntimeException e) {
+                log.error("Failed indexing Api suggestions for {}", event, e);
+            }
+        });
+    }
+
+    /**
+     * Periodically reconcile the keywords with all the api specifications.
+     * Changes are indexed as they happen, so this only catches up on anything the events missed.
+     */
+    @Scheduled(fixedDelayString = "${api-suggestions-reconcile-rate-milliseconds}")
+    public void processAllApiDocuments() {
+        log.debug("Refreshing Api suggestions");
+        // Taken before reading the apis, an api indexed from an event in between is then neither removed nor
+        // replaced by the revision read here
+        Map<String, Long> indexed = new HashMap<>(indexedRevisions);
+        // Compare revisions first so unchanged specifications are never loaded
+        Collection<ApiRevision> revisions = apiService.getAllRevisions();
+        Set<String> visibleIds = revisions.stream().map(ApiRevision::getId).collect(Collectors.toSet());
+        List<String> removedIds = indexed.keySet().stream()
+                .filter(id -> !visibleIds.contains(id))
+                .collect(Collectors.toList());
+        removeApis(removedIds, indexed);
+        List<String> changedIds = revisions.stream()
+                .filter(r -> !Objects.equals(indexed.get(r.getId()), r.getRevision()))
+                .map(ApiRevision::getId)
+                .collect(Collectors.toList());
+        if (!changedIds.isEmpty()) {
+            apiService.forEachSearchableBatch(changedIds, REFRESH_BATCH_SIZE, this::processApis);
         }
+        SuggestionRefreshStats stats = new SuggestionRefreshStats(changedIds.size(), revisions.size() - changedIds.size(), removedIds.size());
+        processedCounter.increment(stats.getProcessed());
+        skippedCounter.increment(stats.getSkipped());
+        removedCounter.increment(stats.getRemoved());
+        lastRefreshStats = stats;
+        log.debug("Refreshing Api suggestions complete, {} processed, {} skipped, {} removed", stats.getProcessed(), stats.getSkipped(), stats.getRemoved());
+    }
+
+    /**
+     * Periodically rebuild the suggestion index from scratch and swap it in, which compacts away removed keywords.
+     * Lookups keep being served from the current index while the new one is built.
+     */
+    @Scheduled(initialDelayString = "${api-suggestions-rebuild-rate-milliseconds}", fixedDelayString = "${api-suggestions-rebuild-rate-milliseconds}")
+    public void rebuildIndex() {
+        log.debug("Rebuilding Api suggestions index");
         try {
-            IndexSearcher searcher = searcherManager.acquire();
-            // Build Query
-            Query combinedQuery = constructQueries(partialKeyword.toLowerCase());
-            // Perform Search
-            TopDocs foundDocs = searcher.search(combinedQuery, 10);
-            // Total found documents
-            log.debug("Total Results :: ", foundDocs.totalHits);
-            for (ScoreDoc sd : foundDocs.scoreDocs) {
-                Document d = searcher.doc(sd.doc);
-                results.add(d.get(INDEX_FIELD_NAME));
+            engine.rebuild(vocabulary::weights);
+            if (phraseEngine != null) {
+                phraseEngine.rebuild(phraseVocabulary::weights);
             }
-            searcherManager.release(searcher);
+            commit();
+            log.debug("Rebuilding Api suggestions index complete, generation {} using {} bytes of heap",
+                    engine.getGeneration(), engine.getMemoryUsage());
         } catch (IOException e) {
-            // any error goes here
-            log.error("Failed to search", e);
+            log.error("Index rebuild failed", e);
         }
-        return results;
     }
 
     /**
-     * Builds a set of queries and combines in to a single boolean OR query
+     * Index the specifications of the given apis and remember which revision was indexed
+     */
+    private void processApis(Collection<Api> apis) {
+        Map<String, String> documents = new LinkedHashMap<>();
+        Map<String, Long> revisions = new HashMap<>();
+        Map<String, Set<String>> scopes = new HashMap<>();
+        apis.forEach(api -> {
+            documents.put(api.getId(), api.getSwaggerDefinition());
+            revisions.put(api.getId(), api.getRevision());
+            scopes.put(api.getId(), scopes(api));
+        });
+        indexDocuments(documents, revisions, scopes);
+    }
+
+    /**
+     * An api is in the scope of every combination of its application, status and tags, so a keyword is only
+     * suggested for a combination of criteria when a single api matching all of them contains it
+     *
+     * @return The scopes suggestions of an api can be restricted to
+     */
+    private static Set<String> scopes(Api api) {
+        List<String> applicationIds = new ArrayList<>(Collections.singletonList(null));
+        if (api.getApplication() != null) {
+            applicationIds.add(api.getApplication().getId());
+        }
+        List<ApiStatus> statuses = new ArrayList<>(Collections.singletonList(null));
+        if (api.getStatus() != null) {
+            statuses.add(api.getStatus());
+        }
+        List<String> tags = new ArrayList<>(Collections.singletonList(null));
+        if (api.getTags() != null) {
+            api.getTags().stream().filter(StringUtils::isNotBlank).forEach(tags::add);
+        }
+        Set<String> scopes = new HashSet<>();
+        for (String applicationId : applicationIds) {
+            for (ApiStatus status : statuses) {
+                for (String tag : tags) {
+                    String scope = scope(applicationId, status, tag);
+                    if (scope != null) {
+                        scopes.add(scope);
+                    }
+                }
+            }
+        }
+        return scopes;
+    }
+
+    /**
+     * @return The scope of the apis matching all the given criteria, null when there is none
+     */
+    private static String scope(String applicationId, ApiStatus status, String tag) {
+        StringJoiner scope = new StringJoiner(SCOPE_SEPARATOR);
+        scope.setEmptyValue("");
+        if (StringUtils.isNotBlank(applicationId)) {
+            scope.add(SCOPE_APPLICATION + applicationId);
+        }
+        if (status != null) {
+            scope.add(SCOPE_STATUS + status.name());
+        }
+        if (StringUtils.isNotBlank(tag)) {
+            scope.add(SCOPE_TAG + tag.toLowerCase());
+        }
+        return scope.length() == 0 ? null : scope.toString();
+    }
+
+    /**
+     * Remove the keywords contributed by the given apis
+     *
+     * @param revisions revision the removal of an api was decided on, keyed by id, it is skipped when a newer
+     *                  revision was indexed since. Apis without one are always removed
+     */
+    private void removeApis(Collection<String> apiIds, Map<String, Long> revisions) {
+        if (apiIds.isEmpty()) {
+            return;
+        }
+        Map<String, String> documents = new LinkedHashMap<>();
+        apiIds.forEach(id -> documents.put(id, null));
+        indexDocuments(documents, revisions, Collections.emptyMap());
+    }
+
+    /**
+     * Completes a partial word using the configured suggestion engine
+     *
+     * @param partialKeyword
+     * @return The matching suggestions
+     */
+    public List<String> search(String partialKeyword) {
+        return suggest(partialKeyword).getSuggestions();
+    }
+
+    /**
+     * Completes a partial word using the configured suggestion engine, within the search time budget
+     *
+     * @param partialKeyword
+     * @return The matching suggestions, truncated when the time budget ran out
      */
-    private Query constructQueries(String word) {
-        //Build multiple queries
-        List<Query> queries = new ArrayList<>();
-        // Fuzzy if applicable
-        appendFuzzyQuery(word, queries);
-        // Wildcard query if possible
-        appendWildcardQuery(word, queries);
-        // Combine all queries
-        BooleanQuery.Builder builder = new BooleanQuery.Builder();
-        queries.forEach(q -> builder.add(q, BooleanClause.Occur.SHOULD));
-        return builder.build();
+    public SuggestionResults suggest(String partialKeyword) {
+        return suggest(partialKeyword, null, null, null);
     }
 
-    private void appendFuzzyQuery(String word, List<Query> queries) {
-        if (word.length() >= FUZZY_MIN_WORD_LENGTH) {
-            queries.add(new FuzzyQuery(new Term(INDEX_FIELD_NAME, word)));
+    /**
+     * Completes a partial word with the keywords of the apis matching all the given criteria,
+     * within the search time budget. Suggestions are still ranked by their weight across all apis.
+     *
+     * @param partialKeyword
+     * @param applicationId only suggest keywords of this application's apis, or null
+     * @param status only suggest keywords of apis with this status, or null
+     * @param tag only suggest keywords of apis with this tag, or null
+     * @return The matching suggestions, truncated when the time budget ran out
+     */
+    public SuggestionResults suggest(String partialKeyword, String applicationId, ApiStatus status, String tag) {
+        if(StringUtils.isBlank(partialKeyword)) {
+            return new SuggestionResults(new ArrayList<>(), false);
         }
+        return lookup(engine, cache, partialKeyword.toLowerCase(), scope(applicationId, status, tag));
     }
 
     /**
-     * Appends a wild card query, otherwise fallbacks to prefix query
+     * Completes the words of a partial phrase with the phrases of operation summaries, paths and schema names
+     * in a single lookup, e.g. "get us" gives "get user" and "get user by". A trailing space only completes
+     * with the following words.
+     *
+     * @param partialPhrase
+     * @param applicationId only suggest phrases of this application's apis, or null
+     * @param status only suggest phrases of apis with this status, or null
+     * @param tag only suggest phrases of apis with this tag, or null
+     * @return The matching phrases, truncated when the time budget ran out
      */
-    private void appendWildcardQuery(String word, List<Query> queries) {
-        StandardQueryParser queryParserHelper = new StandardQueryParser();
-        queryParserHelper.setAllowLeadingWildcard(true);
-        Query query = null;
-        String wildCardKeyword = String.format("*%s*", word.replace("*", ""));
+    public SuggestionResults suggestPhrases(String partialPhrase, String applicationId, ApiStatus status, String tag) {
+        String prefix = partialPhrase == null ? "" : PhraseExtractor.normalizePrefix(partialPhrase);
+        if (phraseEngine == null || prefix.isEmpty()) {
+            return new SuggestionResults(new ArrayList<>(), false);
+        }
+        return lookup(phraseEngine, phraseCache, prefix, scope(applicationId, status, tag));
+    }
+
+    private SuggestionResults lookup(SuggestionEngine engine, SuggestionCache cache, String prefix, String scope) {
+        SuggestionResults results = new SuggestionResults(new ArrayList<>(), false);
+        Set<String> scopes = scope == null ? Collections.emptySet() : Collections.singleton(scope);
+        // Scopes never contain a null character
+        String cacheKey = scope == null ? prefix : prefix + '\u0000' + scope;
+        // Read the version first, results looked up from a newer index are then dropped at the next get
+        long version = engine.getVersion();
+        List<String> cached = cache.get(version, cacheKey);
+        if (cached != null) {
+            return new SuggestionResults(cached, false);
+        }
         try {
-            query = queryParserHelper.parse(wildCardKeyword, INDEX_FIELD_NAME);
-        } catch (QueryNodeException e) {
-            log.error("Failed to build wildcard query for input {}", wildCardKeyword, e);
-            // fallback to prefix query
-            query = new PrefixQuery(new Term(INDEX_FIELD_NAME, word));
+            results = engine.lookup(prefix, scopes, MAX_RESULTS, searchTimeout);
+            if (results.isTruncated()) {
+                timeoutCounter.increment();
+            } else {
+                cache.put(version, cacheKey, results.getSuggestions());
+            }
+        } catch (IOException e) {
+            // any error goes here
+            log.error("Failed to search", e);
         }
-        queries.add(query);
+        return results;
     }
 
     /**
      * Index the documents
-     * Builds a set of keywords from documents and adds to indexs
+     * Builds a set of keywords from documents and adds to indexs.
+     * Documents are identified by their content, indexing the same text again does not change any weight.
      *
      * @param documents
      */
@@ -137,40 +560,159 @@ public class SuggestionService {
         if(CollectionUtils.isEmpty(documents)) {
             return;
         }
-        // Build a set of suggestions.
-        documents.forEach(this::processDocument);
+        Map<String, String> identifiedDocuments = new LinkedHashMap<>();
+        documents.stream()
+                .filter(StringUtils::isNotBlank)
+                .forEach(d -> identifiedDocuments.put(DigestUtils.md5DigestAsHex(d.getBytes(StandardCharsets.UTF_8)), d));
+        indexDocuments(identifiedDocuments, Collections.emptyMap(), Collections.emptyMap());
+    }
+
+    /**
+     * Builds the keywords of each document, replacing the ones previously indexed under the same id.
+     * Keywords of many documents are extracted in parallel batches, each batch is added to the vocabulary and
+     * the index in one go and everything is committed once at the end.
+     *
+     * @param documents documents keyed by id, a null document removes its keywords
+     * @param revisions revision of the documents that have one, keyed by id, a document is skipped when a newer
+     *                  revision of it was indexed meanwhile
+     * @param scopes scopes of the documents that belong to some, keyed by id
+     */
+    private void indexDocuments(Map<String, String> documents, Map<String, Long> revisions, Map<String, Set<String>> scopes) {
+        if(documents.isEmpty()) {
+            return;
+        }
+        int batchSize = Math.min(MAX_BATCH_SIZE, (documents.size() + indexingThreads - 1) / indexingThreads);
+        List<List<String>> batches = new ArrayList<>();
+        for (String id : documents.keySet()) {
+            if (batches.isEmpty() || batches.get(batches.size() - 1).size() == batchSize) {
+                batches.add(new ArrayList<>(batchSize));
+            }
+            batches.get(batches.size() - 1).add(id);
+        }
+        if (batches.size() == 1) {
+            // Not worth handing over to another thread
+            addDocuments(extractDocuments(batches.get(0), documents, revisions, scopes));
+        } else {
+            // Only keep a few batches of keywords in flight
+            Deque<Future<List<ExtractedDocument>>> pending = new ArrayDeque<>();
+            for (List<String> ids : batches) {
+                pending.add(indexingExecutor.submit(() -> extractDocuments(ids, documents, revisions, scopes)));
+                if (pending.size() >= 2 * indexingThreads) {
+                    addDocuments(await(pending.poll()));
+                }
+            }
+            while (!pending.isEmpty()) {
+                addDocuments(await(pending.poll()));
+            }
+        }
         try {
-            indexWriter.commit();
-            searcherManager.maybeRefresh();
+            commit();
             log.debug("Index refreshed");
         } catch (IOException e) {
             log.error("Index refresh failed", e);
         }
     }
 
-    private void processDocument(String document) {
-        if(StringUtils.isBlank(document)) {
+    /**
+     * Commits the documents and then the indexes with the fingerprint of their vocabulary, which a restart compares
+     * instead of reading every keyword back. The index lock keeps the fingerprints in step with what was indexed.
+     */
+    private void commit() throws IOException {
+        synchronized (indexLock) {
+            // Persist the documents first, a keyword index ahead of them would not be detected on restart
+            if (documentStore != null) {
+                documentStore.commit();
+            }
+            engine.refresh(vocabulary.fingerprint());
+            if (phraseEngine != null) {
+                phraseEngine.refresh(phraseVocabulary.fingerprint());
+            }
+        }
+    }
+
+    private List<ExtractedDocument> extractDocuments(List<String> ids, Map<String, String> documents,
+                                                     Map<String, Long> revisions, Map<String, Set<String>> scopes) {
+        List<ExtractedDocument> extracted = new ArrayList<>(ids.size());
+        // Parse each document once for both extractors, and not at all when none of them needs the model
+        boolean parse = phraseEngine != null || EXTRACTION_MODEL.equals(extractionMode);
+        for (String id : ids) {
+            String document = documents.get(id);
+            OpenAPI openAPI = parse && StringUtils.isNotBlank(document) ? ApiSpecParserService.parseOpenAPI(document) : null;
+            Map<String, Integer> suggestions = StringUtils.isBlank(document) ? Collections.emptyMap() : extractor.extract(document, openAPI);
+            Map<String, Integer> phrases = StringUtils.isBlank(document) || phraseEngine == null
+                    ? Collections.emptyMap() : phraseExtractor.extract(document, openAPI);
+            extracted.add(new ExtractedDocument(id, revisions.get(id), document == null,
+                    scopes.getOrDefault(id, Collections.emptySet()), suggestions, phrases));
+        }
+        return extracted;
+    }
+
+    private List<ExtractedDocument> await(Future<List<ExtractedDocument>> extraction) {
+        try {
+            return extraction.get();
+        } catch (ExecutionException e) {
+            log.error("Failed extracting keywords", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            extraction.cancel(true);
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Adds the keywords and phrases of a batch of documents to the vocabularies and indexes the resulting weights
+     * at once, keywords shared by the documents are only indexed once
+     */
+    private void addDocuments(List<ExtractedDocument> documents) {
+        Map<String, Long> weights = new HashMap<>();
+        Map<String, Long> phraseWeights = new HashMap<>();
+        synchronized (indexLock) {
+            for (ExtractedDocument document : documents) {
+                Long indexed = indexedRevisions.get(document.getId());
+                if (document.getRevision() != null && indexed != null && indexed > document.getRevision()) {
+                    // Read before a newer revision was indexed, e.g. by a reconciliation while an event indexed it
+                    continue;
+                }
+                weights.putAll(vocabulary.put(document.getId(), document.getSuggestions(), document.getScopes()));
+                phraseWeights.putAll(phraseVocabulary.put(document.getId(), document.getPhrases(), document.getScopes()));
+                persistDocument(document);
+                // Recorded with the keywords, so the revision always tells which keywords are in the vocabulary
+                if (!document.isRemoved() && document.getRevision() != null) {
+                    indexedRevisions.put(document.getId(), document.getRevision());
+                } else {
+                    indexedRevisions.remove(document.getId());
+                }
+            }
+            processSuggestions(engine, weights);
+            if (phraseEngine != null) {
+                processSuggestions(phraseEngine, phraseWeights);
+            }
+        }
+    }
+
+    private void persistDocument(ExtractedDocument document) {
+        if (documentStore == null) {
             return;
         }
-        Set<String> suggestions = Arrays.stream(document.split(REGEX_INVALID_CHAR))
-                .filter(StringUtils::isNotBlank)
-                .map(String::toLowerCase)
-                .collect(Collectors.toSet());
-        processSuggestions(suggestions);
+        try {
+            documentStore.put(document.getId(), document.getRevision(), document.getSuggestions(), document.getPhrases(),
+                    document.getScopes());
+        } catch (IOException e) {
+            log.error("Failed persisting document {}", document.getId(), e);
+        }
     }
 
 
     /**
-     * Process each keyword by adding the search index
+     * Process each keyword by adding, re-weighting or removing it from the search index
      *
+     * @param engine
      * @param suggestions
      */
-    private void processSuggestions(Set<String> suggestions) {
+    private void processSuggestions(SuggestionEngine engine, Map<String, Long> suggestions) {
         log.debug("Starting to index {} words", suggestions.size());
         try {
-            for (String suggestion : suggestions) {
-                indexSuggestion(indexWriter, suggestion);
-            }
+            engine.index(suggestions);
             log.debug("Completed indexing {} words", suggestions.size());
         } catch (IOException e) {
             log.error("Failed indexing {} words", suggestions.size(), e);
@@ -178,16 +720,16 @@ public class SuggestionService {
     }
 
     /**
-     * Helper method to add a single document to the index
-     *
-     * @param writer
-     * @param suggestion
-     * @throws IOException
-     */
-    static void indexSuggestion(IndexWriter writer, String suggestion) throws IOException {
-        Document doc = new Document();
-        doc.add(new TextField(INDEX_FIELD_NAME, suggestion, Field.Store.YES));
-        writer.updateDocument(new Term(INDEX_FIELD_NAME, suggestion), doc);
+     * Keywords extracted from a document, waiting to be indexed
+     */
+    @lombok.Value
+    private static class ExtractedDocument {
+        private final String id;
+        private final Long revision;
+        private final boolean removed;
+        private final Set<String> scopes;
+        private final Map<String, Integer> suggestions;
+        private final Map<String, Integer> phrases;
     }
 
 }
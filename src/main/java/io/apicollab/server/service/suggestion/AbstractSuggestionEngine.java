@@ -0,0 +1,467 @@
+package io.apicollab.server.service.suggestion;
+
+import io.apicollab.server.cache.FilterCachingPolicy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.ExitableDirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.QueryTimeoutImpl;
+import org.apache.lucene.index.SortingMergePolicy;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.*;
+import org.apache.lucene.store.AlreadyClosedException;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.IOUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Keyword index shared by the suggestion engines.
+ * Segments are kept sorted by descending weight, so collecting the top suggestions stops after the first hits
+ * of each sorted segment instead of visiting every match.
+ * <p>
+ * The index is held in a generation that {@link #rebuild(Supplier)} replaces atomically, lookups never wait
+ * for writers and never see a partially built generation.
+ * Generations live on the heap, or in memory mapped directories under an index path so they survive restarts
+ * and are held by the page cache.
+ * <p>
+ * Each keyword is indexed with the scopes it appears in, lookups restricted to scopes filter on them with
+ * cached bitsets, see {@link FilterCachingPolicy}.
+ * <p>
+ * Engines correcting typos can keep a {@link DeletionDictionary} of the keywords next to each generation.
+ */
+@Slf4j
+abstract class AbstractSuggestionEngine implements SuggestionEngine {
+
+    static final String KEY_FIELD_NAME = "key";
+    static final String WEIGHT_FIELD_NAME = "weight";
+    static final String SCOPE_FIELD_NAME = "scope";
+    private static final Set<String> KEY_FIELD = Collections.singleton(KEY_FIELD_NAME);
+    private static final Sort WEIGHT_SORT = new Sort(new SortField(WEIGHT_FIELD_NAME, SortField.Type.LONG, true));
+    private static final String GENERATION_PREFIX = "generation-";
+    private static final String FINGERPRINT_KEY = "fingerprint";
+    private static final int MAX_CACHED_FILTERS = 1000;
+    private static final long MAX_CACHED_FILTERS_RAM_BYTES = 32 * 1024 * 1024;
+
+    /**
+     * Caches the documents of every scope filter and nothing else
+     */
+    private static final QueryCachingPolicy SCOPE_CACHING_POLICY = new FilterCachingPolicy(query ->
+            query instanceof TermQuery && SCOPE_FIELD_NAME.equals(((TermQuery) query).getTerm().field()));
+
+    private final Analyzer analyzer;
+    private final Path indexPath;
+    private final Function<String, Set<String>> scopes;
+    private final boolean deletionDictionary;
+
+    /**
+     * Shared by all generations, entries of closed segments are dropped
+     */
+    private final QueryCache queryCache = new LRUQueryCache(MAX_CACHED_FILTERS, MAX_CACHED_FILTERS_RAM_BYTES);
+    private final AtomicReference<Generation> current = new AtomicReference<>();
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * Serializes writers, lookups do not take it
+     */
+    private final Object writeLock = new Object();
+
+    /**
+     * Changes indexed while a rebuild is running, replayed on the new generation before it is swapped in
+     */
+    private Map<String, Long> pendingChanges;
+
+    /**
+     * @param analyzer
+     * @param indexPath directory to keep the generations in, or null to keep them on the heap
+     * @param scopes resolves the scopes of a keyword when it is indexed
+     * @param deletionDictionary true to keep a deletion dictionary of the keywords, see {@link #corrections(String, int)}
+     * @throws IOException
+     */
+    AbstractSuggestionEngine(Analyzer analyzer, Path indexPath, Function<String, Set<String>> scopes,
+                             boolean deletionDictionary) throws IOException {
+        this.analyzer = analyzer;
+        this.indexPath = indexPath;
+        this.scopes = scopes;
+        this.deletionDictionary = deletionDictionary;
+        current.set(indexPath == null ? new Generation(1, false) : openLatestGeneration());
+    }
+
+    /**
+     * Reopens the latest committed generation under the index path and deletes every other one,
+     * e.g. left behind by a rebuild that was interrupted or a swap whose files could not be deleted
+     */
+    private Generation openLatestGeneration() throws IOException {
+        Files.createDirectories(indexPath);
+        List<Path> paths;
+        try (Stream<Path> list = Files.list(indexPath)) {
+            paths = list.filter(path -> path.getFileName().toString().startsWith(GENERATION_PREFIX))
+                    .sorted(Comparator.comparingLong(AbstractSuggestionEngine::generationNumber).reversed())
+                    .collect(Collectors.toList());
+        }
+        Generation latest = null;
+        for (Path path : paths) {
+            if (latest == null && isCommitted(path)) {
+                latest = new Generation(generationNumber(path), true);
+                log.info("Reopened suggestion index generation {} in {}", latest.number, path);
+            } else {
+                IOUtils.rm(path);
+            }
+        }
+        return latest != null ? latest : new Generation(1, false);
+    }
+
+    private static long generationNumber(Path path) {
+        try {
+            return Long.parseLong(path.getFileName().toString().substring(GENERATION_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static boolean isCommitted(Path path) throws IOException {
+        try (Directory directory = new MMapDirectory(path)) {
+            return DirectoryReader.indexExists(directory);
+        }
+    }
+
+    /**
+     * @return false to leave a keyword out of the index
+     */
+    protected boolean accept(String suggestion) {
+        return true;
+    }
+
+    /**
+     * Adds the engine specific searchable fields of a keyword
+     */
+    protected abstract void addFields(Document doc, String suggestion);
+
+    /**
+     * @return The query matching the completions of a partial word
+     */
+    protected abstract Query buildQuery(String partialWord);
+
+    /**
+     * @param word
+     * @param count maximum number of keywords
+     * @return The indexed keywords within a couple of edits of the word, closest first, found in the deletion
+     * dictionary of the current generation
+     */
+    protected List<String> corrections(String word, int count) {
+        DeletionDictionary deletions = current.get().deletions;
+        return deletions == null ? Collections.emptyList() : deletions.lookup(word, count);
+    }
+
+    @Override
+    public void index(Map<String, Long> suggestions) throws IOException {
+        synchronized (writeLock) {
+            current.get().index(suggestions);
+            if (pendingChanges != null) {
+                pendingChanges.putAll(suggestions);
+            }
+        }
+    }
+
+    @Override
+    public void refresh(String fingerprint) throws IOException {
+        synchronized (writeLock) {
+            current.get().refresh(fingerprint);
+            version.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void rebuild(Supplier<Map<String, Long>> suggestions) throws IOException {
+        Map<String, Long> snapshot;
+        long number;
+        synchronized (writeLock) {
+            if (pendingChanges != null) {
+                throw new IllegalStateException("A rebuild is already running");
+            }
+            pendingChanges = new HashMap<>();
+            snapshot = suggestions.get();
+            number = current.get().number + 1;
+        }
+        Generation fresh = null;
+        Generation previous;
+        try {
+            fresh = new Generation(number, false);
+            fresh.index(snapshot);
+            synchronized (writeLock) {
+                fresh.index(pendingChanges);
+                // The snapshot may be ahead of what was indexed, only the next refresh tells the fingerprint
+                fresh.refresh(null);
+                previous = current.getAndSet(fresh);
+                version.incrementAndGet();
+            }
+        } catch (IOException | RuntimeException e) {
+            if (fresh != null) {
+                fresh.close();
+                fresh.delete();
+            }
+            throw e;
+        } finally {
+            synchronized (writeLock) {
+                pendingChanges = null;
+            }
+        }
+        log.debug("Swapped in suggestion index generation {} with {} keywords", number, snapshot.size());
+        previous.close();
+        previous.delete();
+    }
+
+    @Override
+    public long getGeneration() {
+        return current.get().number;
+    }
+
+    @Override
+    public long getVersion() {
+        return version.get();
+    }
+
+    @Override
+    public long getMemoryUsage() {
+        DeletionDictionary deletions = current.get().deletions;
+        return deletions == null ? 0 : deletions.ramBytesUsed();
+    }
+
+    @Override
+    public boolean isConsistent(String fingerprint) {
+        return fingerprint != null && fingerprint.equals(current.get().fingerprint);
+    }
+
+    @Override
+    public SuggestionResults lookup(String partialWord, Set<String> scopes, int count, long timeoutMillis) throws IOException {
+        List<String> results = new ArrayList<>(count);
+        boolean truncated = false;
+        Generation generation = current.get();
+        IndexSearcher searcher = generation.acquire();
+        while (searcher == null) {
+            // Swapped out in the meantime, retry on the new generation
+            generation = current.get();
+            searcher = generation.acquire();
+        }
+        try {
+            // An exact match always comes first, whatever its weight
+            if (searcher.count(filter(new TermQuery(new Term(KEY_FIELD_NAME, partialWord)), scopes)) > 0) {
+                results.add(partialWord);
+            }
+            // One extra hit in case the exact match is among the top suggestions
+            int numHits = count + 1;
+            TopFieldCollector collector = TopFieldCollector.create(WEIGHT_SORT, numHits, false, false, false);
+            Collector sortedCollector = new EarlyTerminatingSortingCollector(collector, WEIGHT_SORT, numHits, WEIGHT_SORT);
+            try {
+                if (timeoutMillis > 0) {
+                    // The collector bounds collecting hits, the reader bounds expanding fuzzy and wildcard terms
+                    TimeLimitingCollector timeLimitingCollector = new TimeLimitingCollector(sortedCollector,
+                            TimeLimitingCollector.getGlobalCounter(), timeoutMillis);
+                    timeLimitingCollector.setBaseline();
+                    IndexSearcher timeLimitingSearcher = createSearcher(new ExitableDirectoryReader(
+                            (DirectoryReader) searcher.getIndexReader(), new QueryTimeoutImpl(timeoutMillis)));
+                    timeLimitingSearcher.search(filter(buildQuery(partialWord), scopes), timeLimitingCollector);
+                } else {
+                    searcher.search(filter(buildQuery(partialWord), scopes), sortedCollector);
+                }
+            } catch (TimeLimitingCollector.TimeExceededException | ExitableDirectoryReader.ExitingReaderException e) {
+                log.debug("Suggestion lookup for '{}' timed out after {} ms", partialWord, timeoutMillis);
+                truncated = true;
+            }
+            for (ScoreDoc sd : collector.topDocs().scoreDocs) {
+                String suggestion = searcher.doc(sd.doc, KEY_FIELD).get(KEY_FIELD_NAME);
+                if (results.size() < count && !suggestion.equals(partialWord)) {
+                    results.add(suggestion);
+                }
+            }
+        } finally {
+            generation.searcherManager.release(searcher);
+        }
+        return new SuggestionResults(results, truncated);
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (writeLock) {
+            current.get().close();
+        }
+    }
+
+    /**
+     * @return The query restricted to keywords in all the given scopes
+     */
+    private static Query filter(Query query, Set<String> scopes) {
+        if (scopes.isEmpty()) {
+            return query;
+        }
+        BooleanQuery.Builder builder = new BooleanQuery.Builder().add(query, BooleanClause.Occur.MUST);
+        scopes.forEach(scope -> builder.add(new TermQuery(new Term(SCOPE_FIELD_NAME, scope)), BooleanClause.Occur.FILTER));
+        return builder.build();
+    }
+
+    private IndexSearcher createSearcher(IndexReader reader) {
+        IndexSearcher searcher = new IndexSearcher(reader);
+        searcher.setQueryCache(queryCache);
+        searcher.setQueryCachingPolicy(SCOPE_CACHING_POLICY);
+        return searcher;
+    }
+
+    private Document createDocument(String suggestion, long weight) {
+        Document doc = new Document();
+        doc.add(new StringField(KEY_FIELD_NAME, suggestion, Field.Store.YES));
+        doc.add(new NumericDocValuesField(WEIGHT_FIELD_NAME, weight));
+        for (String scope : scopes.apply(suggestion)) {
+            doc.add(new StringField(SCOPE_FIELD_NAME, scope, Field.Store.NO));
+        }
+        addFields(doc, suggestion);
+        return doc;
+    }
+
+    /**
+     * A self-contained keyword index
+     */
+    private final class Generation implements Closeable {
+
+        private final long number;
+        private final Path path;
+        private final Directory directory;
+        private final IndexWriter indexWriter;
+        private final SearcherManager searcherManager;
+        private final DeletionDictionary deletions;
+
+        /**
+         * Fingerprint recorded by the last commit, null when none
+         */
+        private volatile String fingerprint;
+
+        /**
+         * @param number
+         * @param reopen true to open the committed index of this generation instead of creating an empty one
+         */
+        private Generation(long number, boolean reopen) throws IOException {
+            this.number = number;
+            if (indexPath == null) {
+                path = null;
+                directory = new RAMDirectory();
+            } else {
+                path = indexPath.resolve(GENERATION_PREFIX + number);
+                directory = new MMapDirectory(path);
+            }
+            IndexWriterConfig config = new IndexWriterConfig(analyzer);
+            config.setOpenMode(reopen ? IndexWriterConfig.OpenMode.APPEND : IndexWriterConfig.OpenMode.CREATE);
+            config.setMergePolicy(new SortingMergePolicy(config.getMergePolicy(), WEIGHT_SORT));
+            indexWriter = new IndexWriter(directory, config);
+            searcherManager = new SearcherManager(indexWriter, new SearcherFactory() {
+                @Override
+                public IndexSearcher newSearcher(IndexReader reader, IndexReader previousReader) {
+                    return createSearcher(reader);
+                }
+            });
+            deletions = deletionDictionary ? new DeletionDictionary() : null;
+            if (reopen) {
+                fingerprint = indexWriter.getCommitData().get(FINGERPRINT_KEY);
+            }
+            if (reopen && deletions != null) {
+                loadDeletions();
+            }
+        }
+
+        private void loadDeletions() throws IOException {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                for (LeafReaderContext context : searcher.getIndexReader().leaves()) {
+                    LeafReader leaf = context.reader();
+                    Bits liveDocs = leaf.getLiveDocs();
+                    for (int i = 0; i < leaf.maxDoc(); i++) {
+                        if (liveDocs == null || liveDocs.get(i)) {
+                            deletions.add(leaf.document(i, KEY_FIELD).get(KEY_FIELD_NAME));
+                        }
+                    }
+                }
+            } finally {
+                searcherManager.release(searcher);
+            }
+        }
+
+        private void index(Map<String, Long> suggestions) throws IOException {
+            for (Map.Entry<String, Long> entry : suggestions.entrySet()) {
+                String suggestion = entry.getKey();
+                Term key = new Term(KEY_FIELD_NAME, suggestion);
+                if (entry.getValue() <= 0) {
+                    indexWriter.deleteDocuments(key);
+                    if (deletions != null) {
+                        deletions.remove(suggestion);
+                    }
+                } else if (accept(suggestion)) {
+                    indexWriter.updateDocument(key, createDocument(suggestion, entry.getValue()));
+                    if (deletions != null) {
+                        deletions.add(suggestion);
+                    }
+                }
+            }
+        }
+
+        private void refresh(String fingerprint) throws IOException {
+            indexWriter.setCommitData(fingerprint == null
+                    ? Collections.emptyMap() : Collections.singletonMap(FINGERPRINT_KEY, fingerprint));
+            indexWriter.commit();
+            this.fingerprint = fingerprint;
+            searcherManager.maybeRefresh();
+        }
+
+        /**
+         * @return A searcher, or null when this generation has been closed
+         */
+        private IndexSearcher acquire() throws IOException {
+            try {
+                return searcherManager.acquire();
+            } catch (AlreadyClosedException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            // Searchers still in use keep their own reference on the index files
+            searcherManager.close();
+            indexWriter.close();
+            directory.close();
+        }
+
+        /**
+         * Deletes the files of a closed generation. On failure they are left for the next start to clean up.
+         */
+        private void delete() {
+            if (path == null) {
+                return;
+            }
+            try {
+                IOUtils.rm(path);
+            } catch (IOException e) {
+                log.warn("Failed to delete suggestion index generation {}", number, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package io.apicollab.server.service.suggestion;
+
+import java.util.*;
+
+/**
+ * Symmetric delete dictionary of keywords, in the spirit of SymSpell.
+ * Every keyword is stored under each string obtained by deleting up to {@link #MAX_EDITS} of its characters,
+ * a word then finds the keywords within that edit distance by looking up its own deletes instead of comparing
+ * it with the whole term dictionary. Only the deletes of the first {@link #PREFIX_LENGTH} characters are stored,
+ * which bounds the number of deletes of long keywords, candidates are checked against the whole keyword.
+ * <p>
+ * Lookups trade memory for latency, see {@link #ramBytesUsed()}. Instances are thread safe.
+ */
+public class DeletionDictionary {
+
+    /**
+     * Same maximum number of edits as a default FuzzyQuery, transpositions count as one edit
+     */
+    static final int MAX_EDITS = 2;
+    static final int PREFIX_LENGTH = 7;
+
+    /**
+     * Approximate size of a map entry without its key and value, and of a String or array without its content
+     */
+    private static final long ENTRY_OVERHEAD = 48;
+    private static final long STRING_OVERHEAD = 56;
+    private static final long ARRAY_OVERHEAD = 16;
+    private static final long REFERENCE_SIZE = 4;
+
+    private static final String[] NO_KEYWORDS = new String[0];
+
+    private final Map<String, String[]> deletes = new HashMap<>();
+    private int size;
+    private long ramBytesUsed;
+
+    /**
+     * Adds a keyword, adding it again has no effect
+     */
+    public synchronized void add(String keyword) {
+        if (contains(keyword)) {
+            return;
+        }
+        for (String delete : deletes(prefix(keyword))) {
+            String[] keywords = deletes.get(delete);
+            if (keywords == null) {
+                keywords = NO_KEYWORDS;
+                ramBytesUsed += ENTRY_OVERHEAD + STRING_OVERHEAD + 2L * delete.length() + ARRAY_OVERHEAD;
+            }
+            String[] added = Arrays.copyOf(keywords, keywords.length + 1);
+            added[keywords.length] = keyword;
+            deletes.put(delete, added);
+            ramBytesUsed += REFERENCE_SIZE;
+        }
+        size++;
+        ramBytesUsed += STRING_OVERHEAD + 2L * keyword.length();
+    }
+
+    /**
+     * Removes a keyword, removing an unknown keyword has no effect
+     */
+    public synchronized void remove(String keyword) {
+        if (!contains(keyword)) {
+            return;
+        }
+        for (String delete : deletes(prefix(keyword))) {
+            String[] keywords = deletes.get(delete);
+            if (keywords.length == 1) {
+                deletes.remove(delete);
+                ramBytesUsed -= ENTRY_OVERHEAD + STRING_OVERHEAD + 2L * delete.length() + ARRAY_OVERHEAD;
+            } else {
+                String[] removed = new String[keywords.length - 1];
+                int i = 0;
+                for (String other : keywords) {
+                    if (!other.equals(keyword)) {
+                        removed[i++] = other;
+                    }
+                }
+                deletes.put(delete, removed);
+            }
+            ramBytesUsed -= REFERENCE_SIZE;
+        }
+        size--;
+        ramBytesUsed -= STRING_OVERHEAD + 2L * keyword.length();
+    }
+
+    /**
+     * @param word
+     * @param count maximum number of keywords
+     * @return The keywords within {@link #MAX_EDITS} edits of the word, closest first
+     */
+    public List<String> lookup(String word, int count) {
+        Map<String, Integer> distances = new HashMap<>();
+        synchronized (this) {
+            for (String delete : deletes(prefix(word))) {
+                for (String keyword : deletes.getOrDefault(delete, NO_KEYWORDS)) {
+                    if (!distances.containsKey(keyword)) {
+                        distances.put(keyword, distance(word, keyword));
+                    }
+                }
+            }
+        }
+        List<String> keywords = new ArrayList<>();
+        distances.forEach((keyword, distance) -> {
+            if (distance <= MAX_EDITS) {
+                keywords.add(keyword);
+            }
+        });
+        keywords.sort(Comparator.comparing(distances::get));
+        return keywords.size() > count ? keywords.subList(0, count) : keywords;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return The approximate size of the dictionary on the heap in bytes
+     */
+    public synchronized long ramBytesUsed() {
+        return ramBytesUsed;
+    }
+
+    private boolean contains(String keyword) {
+        for (String other : deletes.getOrDefault(prefix(keyword), NO_KEYWORDS)) {
+            if (other.equals(keyword)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String prefix(String word) {
+        return word.length() > PREFIX_LENGTH ? word.substring(0, PREFIX_LENGTH) : word;
+    }
+
+    /**
+     * @return The word and every distinct string obtained by deleting up to {@link #MAX_EDITS} of its characters
+     */
+    static Set<String> deletes(String word) {
+        Set<String> deletes = new HashSet<>();
+        deletes.add(word);
+        Set<String> edits = Collections.singleton(word);
+        for (int edit = 0; edit < MAX_EDITS; edit++) {
+            Set<String> next = new HashSet<>();
+            for (String edited : edits) {
+                for (int i = 0; i < edited.length(); i++) {
+                    String delete = edited.substring(0, i) + edited.substring(i + 1);
+                    if (deletes.add(delete)) {
+                        next.add(delete);
+                    }
+                }
+            }
+            edits = next;
+        }
+        return deletes;
+    }
+
+    /**
+     * @return The optimal string alignment distance of two words, or {@link #MAX_EDITS} + 1 when it is larger
+     */
+    static int distance(String a, String b) {
+        if (Math.abs(a.length() - b.length()) > MAX_EDITS) {
+            return MAX_EDITS + 1;
+        }
+        int[] previousPrevious = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int distance = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    distance = Math.min(distance, previousPrevious[j - 2] + 1);
+                }
+                current[j] = distance;
+                rowMin = Math.min(rowMin, distance);
+            }
+            if (rowMin > MAX_EDITS) {
+                return MAX_EDITS + 1;
+            }
+            int[] recycled = previousPrevious;
+            previousPrevious = previous;
+            previous = current;
+            current = recycled;
+        }
+        return Math.min(previous[b.length()], MAX_EDITS + 1);
+    }
+}
@@ -0,0 +1,112 @@
+package io.apicollab.server.service.suggestion;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.core.KeywordTokenizer;
+import org.apache.lucene.analysis.miscellaneous.PerFieldAnalyzerWrapper;
+import org.apache.lucene.analysis.ngram.EdgeNGramTokenFilter;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Completes words from a precomputed infix index, in the spirit of Lucene's AnalyzingInfixSuggester.
+ * Each keyword is indexed with all of its suffixes and the short prefixes of those suffixes are indexed as
+ * edge n-grams, so prefix and infix completions are term lookups instead of term dictionary scans.
+ * Unlike {@link QuerySuggestionEngine} this engine does not correct typos.
+ */
+@Slf4j
+public class InfixSuggestionEngine extends AbstractSuggestionEngine {
+
+    private static final String TEXT_FIELD_NAME = "text";
+    private static final String TEXTGRAMS_FIELD_NAME = "textgrams";
+
+    /**
+     * Completions shorter than this are answered from n-grams, longer ones from a prefix query on the suffixes
+     */
+    private static final int MIN_PREFIX_CHARS = 4;
+
+    /**
+     * Longer keywords (e.g. encoded examples) would explode in to too many suffixes
+     */
+    static final int MAX_SUGGESTION_LENGTH = 64;
+
+    private static final FieldType TEXT_FIELD_TYPE = new FieldType(TextField.TYPE_NOT_STORED);
+
+    static {
+        TEXT_FIELD_TYPE.setIndexOptions(IndexOptions.DOCS);
+        TEXT_FIELD_TYPE.setOmitNorms(true);
+        TEXT_FIELD_TYPE.freeze();
+    }
+
+    public InfixSuggestionEngine() throws IOException {
+        this(null, suggestion -> Collections.emptySet());
+    }
+
+    /**
+     * @param indexPath directory to keep the index in, or null to keep it on the heap
+     * @param scopes resolves the scopes of a keyword when it is indexed
+     */
+    public InfixSuggestionEngine(Path indexPath, Function<String, Set<String>> scopes) throws IOException {
+        super(new PerFieldAnalyzerWrapper(new SuffixAnalyzer(false),
+                Collections.singletonMap(TEXTGRAMS_FIELD_NAME, new SuffixAnalyzer(true))), indexPath, scopes, false);
+    }
+
+    @Override
+    protected boolean accept(String suggestion) {
+        if (suggestion.length() > MAX_SUGGESTION_LENGTH) {
+            log.debug("Skipping suggestion of {} characters", suggestion.length());
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    protected void addFields(Document doc, String suggestion) {
+        doc.add(new Field(TEXT_FIELD_NAME, suggestion, TEXT_FIELD_TYPE));
+        doc.add(new Field(TEXTGRAMS_FIELD_NAME, suggestion, TEXT_FIELD_TYPE));
+    }
+
+    @Override
+    protected Query buildQuery(String partialWord) {
+        if (partialWord.length() < MIN_PREFIX_CHARS) {
+            return new TermQuery(new Term(TEXTGRAMS_FIELD_NAME, partialWord));
+        }
+        return new PrefixQuery(new Term(TEXT_FIELD_NAME, partialWord));
+    }
+
+    /**
+     * Indexes each keyword as a whole together with its suffixes, optionally as edge n-grams
+     */
+    private static final class SuffixAnalyzer extends Analyzer {
+
+        private final boolean edgeNGrams;
+
+        private SuffixAnalyzer(boolean edgeNGrams) {
+            this.edgeNGrams = edgeNGrams;
+        }
+
+        @Override
+        protected TokenStreamComponents createComponents(String fieldName) {
+            Tokenizer tokenizer = new KeywordTokenizer();
+            SuffixFilter suffixes = new SuffixFilter(tokenizer);
+            if (edgeNGrams) {
+                return new TokenStreamComponents(tokenizer, new EdgeNGramTokenFilter(suffixes, 1, MIN_PREFIX_CHARS));
+            }
+            return new TokenStreamComponents(tokenizer, suffixes);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package io.apicollab.server.service.suggestion;
+
+import io.swagger.v3.oas.models.OpenAPI;
+
+import java.util.Map;
+
+/**
+ * Extracts the keywords to suggest from an api specification.
+ */
+public interface KeywordExtractor {
+
+    /**
+     * @param document
+     * @return The number of occurrences of each lowercase keyword
+     */
+    Map<String, Integer> extract(String document);
+
+    /**
+     * Extracts the keywords of a document already parsed, so extractors of the same document share one parse
+     *
+     * @param document
+     * @param openAPI the parsed document, null when it cannot be parsed
+     * @return The number of occurrences of each lowercase keyword
+     */
+    default Map<String, Integer> extract(String document, OpenAPI openAPI) {
+        return extract(document);
+    }
+}
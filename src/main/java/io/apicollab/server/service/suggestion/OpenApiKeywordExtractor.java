@@ -0,0 +1,241 @@
+package io.apicollab.server.service.suggestion;
+
+import io.apicollab.server.service.ApiSpecParserService;
+import io.swagger.v3.oas.models.OpenAPI;
+import io.swagger.v3.oas.models.Operation;
+import io.swagger.v3.oas.models.media.ArraySchema;
+import io.swagger.v3.oas.models.media.ComposedSchema;
+import io.swagger.v3.oas.models.media.Content;
+import io.swagger.v3.oas.models.media.Schema;
+import io.swagger.v3.oas.models.parameters.Parameter;
+import io.swagger.v3.oas.models.tags.Tag;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Extracts the identifiers of a parsed OpenAPI (or Swagger 2) specification: path segments, operationIds,
+ * tags, parameter names, schema and property names. Identifiers are suggested whole and split on
+ * camelCase and snake_case, e.g. listPetsById also suggests list, pets, by and id.
+ * Descriptions, specification keywords and values are left out.
+ * Documents that cannot be parsed fall back to {@link TextKeywordExtractor}.
+ */
+public class OpenApiKeywordExtractor implements KeywordExtractor {
+
+    /**
+     * Shorter camelCase or snake_case parts are not worth suggesting
+     */
+    private static final int MIN_PART_LENGTH = 2;
+
+    private final KeywordExtractor fallback = new TextKeywordExtractor();
+
+    @Override
+    public Map<String, Integer> extract(String document) {
+        return extract(document, ApiSpecParserService.parseOpenAPI(document));
+    }
+
+    @Override
+    public Map<String, Integer> extract(String document, OpenAPI openAPI) {
+        if (openAPI == null) {
+            return fallback.extract(document);
+        }
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        new Walker(counts).walk(openAPI);
+        return counts;
+    }
+
+    /**
+     * Splits an identifier in to lowercase keywords, the whole words first and then their camelCase and
+     * snake_case parts
+     *
+     * @param identifier
+     * @return The keywords, in order of appearance
+     */
+    static List<String> split(String identifier) {
+        List<String> keywords = new ArrayList<>();
+        forEachWord(identifier, word -> splitWord(word, keywords));
+        return keywords;
+    }
+
+    /**
+     * Splits an identifier or a sentence in to its lowercase camelCase and snake_case parts, in order,
+     * e.g. listPetsById gives list, pets, by and id
+     *
+     * @param text
+     * @return The parts, without the whole words
+     */
+    static List<String> parts(String text) {
+        List<String> parts = new ArrayList<>();
+        forEachWord(text, word -> splitParts(word, 1, parts));
+        return parts;
+    }
+
+    private static void forEachWord(String text, Consumer<String> consumer) {
+        int length = text.length();
+        int wordStart = -1;
+        for (int i = 0; i <= length; i++) {
+            boolean wordChar = i < length && isWordChar(text.charAt(i));
+            if (wordChar && wordStart < 0) {
+                wordStart = i;
+            } else if (!wordChar && wordStart >= 0) {
+                consumer.accept(text.substring(wordStart, i));
+                wordStart = -1;
+            }
+        }
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    private static void splitWord(String word, List<String> keywords) {
+        keywords.add(word.toLowerCase(Locale.ROOT));
+        List<String> parts = new ArrayList<>();
+        splitParts(word, MIN_PART_LENGTH, parts);
+        if (parts.size() > 1) {
+            keywords.addAll(parts);
+        }
+    }
+
+    private static void splitParts(String word, int minPartLength, List<String> parts) {
+        int partStart = 0;
+        for (int i = 1; i <= word.length(); i++) {
+            if (i == word.length() || isPartBoundary(word, i)) {
+                String part = StringUtils.strip(word.substring(partStart, i), "_");
+                if (part.length() >= minPartLength) {
+                    parts.add(part.toLowerCase(Locale.ROOT));
+                }
+                partStart = i;
+            }
+        }
+    }
+
+    /**
+     * @return true when a new part starts at the given index: after an underscore, at an upper case letter
+     * following a lower case letter or digit, or at the last upper case letter of an acronym followed by lower case
+     */
+    private static boolean isPartBoundary(String word, int i) {
+        char previous = word.charAt(i - 1);
+        char c = word.charAt(i);
+        if (previous == '_') {
+            return c != '_';
+        }
+        if (Character.isUpperCase(c)) {
+            return Character.isLowerCase(previous) || Character.isDigit(previous)
+                    || (Character.isUpperCase(previous) && i + 1 < word.length() && Character.isLowerCase(word.charAt(i + 1)));
+        }
+        return false;
+    }
+
+    /**
+     * Collects the identifiers of one specification
+     */
+    private static final class Walker {
+
+        private final Map<String, Integer> counts;
+        private final Set<Schema<?>> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        private Walker(Map<String, Integer> counts) {
+            this.counts = counts;
+        }
+
+        private void walk(OpenAPI openAPI) {
+            if (openAPI.getTags() != null) {
+                openAPI.getTags().stream().map(Tag::getName).forEach(this::add);
+            }
+            if (openAPI.getPaths() != null) {
+                openAPI.getPaths().forEach((path, item) -> {
+                    for (String segment : path.split("/")) {
+                        add(StringUtils.strip(segment, "{}"));
+                    }
+                    addParameters(item.getParameters());
+                    item.readOperations().forEach(this::addOperation);
+                });
+            }
+            if (openAPI.getComponents() != null) {
+                if (openAPI.getComponents().getSchemas() != null) {
+                    openAPI.getComponents().getSchemas().forEach((name, schema) -> {
+                        add(name);
+                        addSchema(schema);
+                    });
+                }
+                if (openAPI.getComponents().getParameters() != null) {
+                    addParameters(openAPI.getComponents().getParameters().values());
+                }
+            }
+        }
+
+        private void addOperation(Operation operation) {
+            add(operation.getOperationId());
+            if (operation.getTags() != null) {
+                operation.getTags().forEach(this::add);
+            }
+            addParameters(operation.getParameters());
+            if (operation.getRequestBody() != null) {
+                addContent(operation.getRequestBody().getContent());
+            }
+            if (operation.getResponses() != null) {
+                operation.getResponses().values().forEach(response -> addContent(response.getContent()));
+            }
+        }
+
+        private void addParameters(Collection<Parameter> parameters) {
+            if (parameters == null) {
+                return;
+            }
+            parameters.forEach(parameter -> {
+                add(parameter.getName());
+                addSchema(parameter.getSchema());
+            });
+        }
+
+        private void addContent(Content content) {
+            if (content != null) {
+                content.values().forEach(mediaType -> addSchema(mediaType.getSchema()));
+            }
+        }
+
+        /**
+         * Adds the property names of an inline schema and of the schemas nested in it
+         */
+        private void addSchema(Schema<?> schema) {
+            if (schema == null || !visited.add(schema)) {
+                return;
+            }
+            if (schema.getProperties() != null) {
+                schema.getProperties().forEach((name, property) -> {
+                    add(name);
+                    addSchema(property);
+                });
+            }
+            if (schema instanceof ArraySchema) {
+                addSchema(((ArraySchema) schema).getItems());
+            }
+            if (schema instanceof ComposedSchema) {
+                ComposedSchema composed = (ComposedSchema) schema;
+                addSchemas(composed.getAllOf());
+                addSchemas(composed.getAnyOf());
+                addSchemas(composed.getOneOf());
+            }
+            if (schema.getAdditionalProperties() instanceof Schema<?>) {
+                addSchema((Schema<?>) schema.getAdditionalProperties());
+            }
+        }
+
+        /**
+         * @param schemas schemas of a composed schema, which the model lists with a raw type
+         */
+        private void addSchemas(List<?> schemas) {
+            if (schemas != null) {
+                schemas.forEach(schema -> addSchema((Schema<?>) schema));
+            }
+        }
+
+        private void add(String identifier) {
+            if (StringUtils.isNotBlank(identifier)) {
+                split(identifier).forEach(keyword -> counts.merge(keyword, 1, Integer::sum));
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package io.apicollab.server.service.suggestion;
+
+import io.apicollab.server.service.ApiSpecParserService;
+import io.swagger.v3.oas.models.OpenAPI;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Extracts the phrases to complete from a parsed OpenAPI (or Swagger 2) specification: the shingles (word n-grams)
+ * of operation summaries, paths and schema names, e.g. the summary "Get user by id" gives "get user",
+ * "user by", "by id", "get user by" and "user by id". Identifiers are split on camelCase and snake_case first.
+ * Shingles never span two summaries, paths or names. Documents that cannot be parsed have no phrases.
+ */
+public class PhraseExtractor implements KeywordExtractor {
+
+    static final int MIN_SHINGLE_SIZE = 2;
+    static final int MAX_SHINGLE_SIZE = 3;
+
+    /**
+     * Separates the words of a phrase, keywords never contain it
+     */
+    public static final String WORD_SEPARATOR = " ";
+
+    @Override
+    public Map<String, Integer> extract(String document) {
+        return extract(document, ApiSpecParserService.parseOpenAPI(document));
+    }
+
+    @Override
+    public Map<String, Integer> extract(String document, OpenAPI openAPI) {
+        if (openAPI == null) {
+            return Collections.emptyMap();
+        }
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        if (openAPI.getPaths() != null) {
+            openAPI.getPaths().forEach((path, item) -> {
+                addShingles(path, counts);
+                item.readOperations().forEach(operation -> addShingles(operation.getSummary(), counts));
+            });
+        }
+        if (openAPI.getComponents() != null && openAPI.getComponents().getSchemas() != null) {
+            openAPI.getComponents().getSchemas().keySet().forEach(name -> addShingles(name, counts));
+        }
+        return counts;
+    }
+
+    /**
+     * Normalizes a partial phrase the way phrases are extracted, a trailing space is kept to only complete
+     * phrases whose next word starts after it
+     *
+     * @param partialPhrase
+     * @return The lowercase words of the partial phrase, with single spaces in between
+     */
+    public static String normalizePrefix(String partialPhrase) {
+        String prefix = String.join(WORD_SEPARATOR, OpenApiKeywordExtractor.parts(partialPhrase));
+        boolean nextWord = !prefix.isEmpty() && Character.isWhitespace(partialPhrase.charAt(partialPhrase.length() - 1));
+        return nextWord ? prefix + WORD_SEPARATOR : prefix;
+    }
+
+    private static void addShingles(String text, Map<String, Integer> counts) {
+        if (StringUtils.isBlank(text)) {
+            return;
+        }
+        List<String> words = OpenApiKeywordExtractor.parts(text);
+        for (int start = 0; start < words.size(); start++) {
+            List<String> shingle = new ArrayList<>(MAX_SHINGLE_SIZE);
+            for (int end = start; end < words.size() && shingle.size() < MAX_SHINGLE_SIZE; end++) {
+                shingle.add(words.get(end));
+                if (shingle.size() >= MIN_SHINGLE_SIZE) {
+                    counts.merge(String.join(WORD_SEPARATOR, shingle), 1, Integer::sum);
+                }
+            }
+        }
+    }
+}
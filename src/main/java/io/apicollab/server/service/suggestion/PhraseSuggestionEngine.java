@@ -0,0 +1,46 @@
+package io.apicollab.server.service.suggestion;
+
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Completes multi-word phrases from an index of shingles, see {@link PhraseExtractor}.
+ * Shingles starting at every word are indexed whole, so a partial phrase is completed by a single prefix query
+ * on the phrase keys, which only visits the terms sharing that prefix.
+ */
+public class PhraseSuggestionEngine extends AbstractSuggestionEngine {
+
+    public PhraseSuggestionEngine() throws IOException {
+        this(null, phrase -> Collections.emptySet());
+    }
+
+    /**
+     * @param indexPath directory to keep the index in, or null to keep it on the heap
+     * @param scopes resolves the scopes of a phrase when it is indexed
+     */
+    public PhraseSuggestionEngine(Path indexPath, Function<String, Set<String>> scopes) throws IOException {
+        super(new KeywordAnalyzer(), indexPath, scopes, false);
+    }
+
+    @Override
+    protected void addFields(Document doc, String phrase) {
+        // Looked up by its key only
+    }
+
+    /**
+     * @param partialPhrase lowercase words separated by single spaces, see {@link PhraseExtractor#normalizePrefix(String)}
+     */
+    @Override
+    protected Query buildQuery(String partialPhrase) {
+        return new PrefixQuery(new Term(KEY_FIELD_NAME, partialPhrase));
+    }
+}
@@ -0,0 +1,112 @@
+package io.apicollab.server.service.suggestion;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.flexible.core.QueryNodeException;
+import org.apache.lucene.queryparser.flexible.standard.StandardQueryParser;
+import org.apache.lucene.search.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Completes words by running a fuzzy query and a leading wildcard query over the keyword index.
+ * Every lookup enumerates the whole term dictionary, see {@link InfixSuggestionEngine} for a cheaper alternative.
+ * Typos can instead be corrected from a {@link DeletionDictionary}, which replaces the fuzzy query by a few hash
+ * lookups at the cost of keeping the deletes of every keyword on the heap.
+ */
+@Slf4j
+public class QuerySuggestionEngine extends AbstractSuggestionEngine {
+
+    private static final String INDEX_FIELD_NAME = "suggestionId";
+    private static final int FUZZY_MIN_WORD_LENGTH = 4;
+
+    /**
+     * Same maximum number of corrections as a default FuzzyQuery
+     */
+    private static final int MAX_CORRECTIONS = FuzzyQuery.defaultMaxExpansions;
+
+    private final boolean deletionDictionary;
+
+    public QuerySuggestionEngine() throws IOException {
+        this(null, suggestion -> Collections.emptySet());
+    }
+
+    /**
+     * @param indexPath directory to keep the index in, or null to keep it on the heap
+     * @param scopes resolves the scopes of a keyword when it is indexed
+     */
+    public QuerySuggestionEngine(Path indexPath, Function<String, Set<String>> scopes) throws IOException {
+        this(indexPath, scopes, false);
+    }
+
+    /**
+     * @param indexPath directory to keep the index in, or null to keep it on the heap
+     * @param scopes resolves the scopes of a keyword when it is indexed
+     * @param deletionDictionary true to correct typos from a deletion dictionary instead of a fuzzy query
+     */
+    public QuerySuggestionEngine(Path indexPath, Function<String, Set<String>> scopes, boolean deletionDictionary) throws IOException {
+        super(new StandardAnalyzer(), indexPath, scopes, deletionDictionary);
+        this.deletionDictionary = deletionDictionary;
+    }
+
+    @Override
+    protected void addFields(Document doc, String suggestion) {
+        doc.add(new TextField(INDEX_FIELD_NAME, suggestion, Field.Store.NO));
+    }
+
+    /**
+     * Builds a set of queries and combines in to a single boolean OR query
+     */
+    @Override
+    protected Query buildQuery(String word) {
+        //Build multiple queries
+        List<Query> queries = new ArrayList<>();
+        // Fuzzy if applicable
+        appendFuzzyQuery(word, queries);
+        // Wildcard query if possible
+        appendWildcardQuery(word, queries);
+        // Combine all queries
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        queries.forEach(q -> builder.add(q, BooleanClause.Occur.SHOULD));
+        return builder.build();
+    }
+
+    private void appendFuzzyQuery(String word, List<Query> queries) {
+        if (word.length() < FUZZY_MIN_WORD_LENGTH) {
+            return;
+        }
+        if (deletionDictionary) {
+            corrections(word, MAX_CORRECTIONS).forEach(correction -> queries.add(new TermQuery(new Term(KEY_FIELD_NAME, correction))));
+        } else {
+            queries.add(new FuzzyQuery(new Term(INDEX_FIELD_NAME, word)));
+        }
+    }
+
+    /**
+     * Appends a wild card query, otherwise fallbacks to prefix query
+     */
+    private void appendWildcardQuery(String word, List<Query> queries) {
+        StandardQueryParser queryParserHelper = new StandardQueryParser();
+        queryParserHelper.setAllowLeadingWildcard(true);
+        Query query = null;
+        String wildCardKeyword = String.format("*%s*", word.replace("*", ""));
+        try {
+            query = queryParserHelper.parse(wildCardKeyword, INDEX_FIELD_NAME);
+        } catch (QueryNodeException e) {
+            log.error("Failed to build wildcard query for input {}", wildCardKeyword, e);
+            // fallback to prefix query
+            query = new PrefixQuery(new Term(INDEX_FIELD_NAME, word));
+        }
+        queries.add(query);
+    }
+}
@@ -0,0 +1,57 @@
+package io.apicollab.server.service.suggestion;
+
+import org.apache.lucene.analysis.TokenFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.util.ArrayUtil;
+
+import java.io.IOException;
+
+/**
+ * Emits every suffix of each token, so a prefix lookup on the suffixes matches anywhere inside the token.
+ * e.g. "pets" is indexed as "pets", "ets", "ts" and "s".
+ */
+final class SuffixFilter extends TokenFilter {
+
+    private final CharTermAttribute termAtt = addAttribute(CharTermAttribute.class);
+    private final PositionIncrementAttribute posIncAtt = addAttribute(PositionIncrementAttribute.class);
+
+    private char[] buffer = new char[0];
+    private int length;
+    private int start = -1;
+
+    SuffixFilter(TokenStream input) {
+        super(input);
+    }
+
+    @Override
+    public boolean incrementToken() throws IOException {
+        if (start >= 0) {
+            // Never split a surrogate pair
+            do {
+                start++;
+            } while (start < length && Character.isLowSurrogate(buffer[start]));
+            if (start < length) {
+                clearAttributes();
+                termAtt.copyBuffer(buffer, start, length - start);
+                posIncAtt.setPositionIncrement(0);
+                return true;
+            }
+        }
+        if (!input.incrementToken()) {
+            return false;
+        }
+        length = termAtt.length();
+        buffer = ArrayUtil.grow(buffer, length);
+        System.arraycopy(termAtt.buffer(), 0, buffer, 0, length);
+        start = 0;
+        return true;
+    }
+
+    @Override
+    public void reset() throws IOException {
+        super.reset();
+        start = -1;
+    }
+}
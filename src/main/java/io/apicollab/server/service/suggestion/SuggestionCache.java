@@ -0,0 +1,36 @@
+package io.apicollab.server.service.suggestion;
+
+import io.apicollab.server.cache.VersionedCache;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Least recently used cache of lookup results by partial word.
+ * Entries are weighed by their approximate size in memory and the least recently used ones are evicted once
+ * the total exceeds the capacity. Results are cached for the index version they were looked up from,
+ * see {@link SuggestionEngine#getVersion()}, and all entries are dropped as soon as a newer version is seen.
+ */
+public class SuggestionCache extends VersionedCache<Long, String, List<String>> {
+
+    /**
+     * @param maxWeight approximate maximum size of the cached entries in bytes
+     */
+    public SuggestionCache(long maxWeight) {
+        super(maxWeight, SuggestionCache::weigh, Comparator.naturalOrder());
+    }
+
+    @Override
+    public void put(Long version, String partialWord, List<String> results) {
+        super.put(version, partialWord, Collections.unmodifiableList(results));
+    }
+
+    private static long weigh(String partialWord, List<String> results) {
+        long size = ENTRY_OVERHEAD + sizeOf(partialWord);
+        for (String result : results) {
+            size += sizeOf(result);
+        }
+        return size;
+    }
+}
@@ -0,0 +1,159 @@
+package io.apicollab.server.service.suggestion;
+
+import lombok.Value;
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.util.Bits;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Persists the keywords and phrases counted in every indexed document, the revision they were counted from and
+ * the scopes of the document, so the {@link SuggestionVocabulary} can be restored after a restart without reading the documents again.
+ */
+public class SuggestionDocumentStore implements Closeable {
+
+    private static final String ID_FIELD_NAME = "id";
+    private static final String REVISION_FIELD_NAME = "revision";
+    private static final String TERMS_FIELD_NAME = "terms";
+    private static final String PHRASES_FIELD_NAME = "phrases";
+    private static final String SCOPE_FIELD_NAME = "scope";
+
+    /**
+     * Keywords never contain whitespace, see SuggestionService, and phrases never contain line breaks
+     */
+    private static final char SEPARATOR = ' ';
+    private static final char PHRASE_SEPARATOR = '\n';
+
+    private final MMapDirectory directory;
+    private final IndexWriter indexWriter;
+
+    public SuggestionDocumentStore(Path path) throws IOException {
+        directory = new MMapDirectory(path);
+        IndexWriterConfig config = new IndexWriterConfig(new KeywordAnalyzer());
+        config.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+        indexWriter = new IndexWriter(directory, config);
+    }
+
+    /**
+     * Replaces the keywords and phrases of a document, empty maps remove the document.
+     * Changes are only persisted by the next {@link #commit()} or {@link #close()}.
+     *
+     * @param documentId
+     * @param revision revision of the document, or null when it has none
+     * @param counts number of occurrences of each keyword in the document
+     * @param phrases number of occurrences of each phrase in the document
+     * @param scopes scopes the document belongs to
+     * @throws IOException
+     */
+    public void put(String documentId, Long revision, Map<String, Integer> counts, Map<String, Integer> phrases,
+                    Set<String> scopes) throws IOException {
+        Term id = new Term(ID_FIELD_NAME, documentId);
+        if (counts.isEmpty() && phrases.isEmpty()) {
+            indexWriter.deleteDocuments(id);
+            return;
+        }
+        Document doc = new Document();
+        doc.add(new StringField(ID_FIELD_NAME, documentId, Field.Store.YES));
+        if (revision != null) {
+            doc.add(new StoredField(REVISION_FIELD_NAME, revision));
+        }
+        doc.add(new StoredField(TERMS_FIELD_NAME, format(counts, SEPARATOR)));
+        if (!phrases.isEmpty()) {
+            doc.add(new StoredField(PHRASES_FIELD_NAME, format(phrases, PHRASE_SEPARATOR)));
+        }
+        scopes.forEach(scope -> doc.add(new StoredField(SCOPE_FIELD_NAME, scope)));
+        indexWriter.updateDocument(id, doc);
+    }
+
+    public void commit() throws IOException {
+        indexWriter.commit();
+    }
+
+    /**
+     * Reads back every committed document
+     *
+     * @param consumer
+     * @throws IOException
+     */
+    public void forEach(Consumer<StoredDocument> consumer) throws IOException {
+        if (!DirectoryReader.indexExists(directory)) {
+            return;
+        }
+        try (IndexReader reader = DirectoryReader.open(directory)) {
+            for (LeafReaderContext context : reader.leaves()) {
+                LeafReader leaf = context.reader();
+                Bits liveDocs = leaf.getLiveDocs();
+                for (int i = 0; i < leaf.maxDoc(); i++) {
+                    if (liveDocs == null || liveDocs.get(i)) {
+                        consumer.accept(toStoredDocument(leaf.document(i)));
+                    }
+                }
+            }
+        }
+    }
+
+    public int size() {
+        return indexWriter.numDocs();
+    }
+
+    private static StoredDocument toStoredDocument(Document doc) {
+        Number revision = doc.getField(REVISION_FIELD_NAME) == null ? null : doc.getField(REVISION_FIELD_NAME).numericValue();
+        Map<String, Integer> counts = parse(doc.get(TERMS_FIELD_NAME), SEPARATOR);
+        Map<String, Integer> phrases = parse(doc.get(PHRASES_FIELD_NAME), PHRASE_SEPARATOR);
+        Set<String> scopes = new HashSet<>(Arrays.asList(doc.getValues(SCOPE_FIELD_NAME)));
+        return new StoredDocument(doc.get(ID_FIELD_NAME), revision == null ? null : revision.longValue(), counts, phrases, scopes);
+    }
+
+    private static String format(Map<String, Integer> counts, char separator) {
+        StringBuilder text = new StringBuilder();
+        counts.forEach((term, count) -> text.append(term).append(separator).append(count).append(separator));
+        return text.toString();
+    }
+
+    private static Map<String, Integer> parse(String text, char separator) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        if (text == null || text.isEmpty()) {
+            return counts;
+        }
+        String[] terms = text.split(String.valueOf(separator));
+        for (int i = 0; i + 1 < terms.length; i += 2) {
+            counts.put(terms[i], Integer.valueOf(terms[i + 1]));
+        }
+        return counts;
+    }
+
+    @Override
+    public void close() throws IOException {
+        indexWriter.close();
+        directory.close();
+    }
+
+    @Value
+    public static class StoredDocument {
+        private final String id;
+        private final Long revision;
+        private final Map<String, Integer> counts;
+        private final Map<String, Integer> phrases;
+        private final Set<String> scopes;
+    }
+}
@@ -0,0 +1,104 @@
+package io.apicollab.server.service.suggestion;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Stores the keywords extracted from api specifications and completes partial words against them.
+ */
+public interface SuggestionEngine extends Closeable {
+
+    /**
+     * Adds or re-weights keywords, a weight of 0 removes the keyword.
+     * Changes only become visible to {@link #lookup(String, int)} after the next {@link #refresh()}.
+     *
+     * @param suggestions lowercase keywords and their weight
+     * @throws IOException
+     */
+    void index(Map<String, Long> suggestions) throws IOException;
+
+    /**
+     * Commits pending changes and makes them visible to lookups, without a fingerprint
+     *
+     * @throws IOException
+     * @see #refresh(String)
+     */
+    default void refresh() throws IOException {
+        refresh(null);
+    }
+
+    /**
+     * Commits pending changes with the fingerprint of all the keywords indexed so far, and makes them visible
+     * to lookups
+     *
+     * @param fingerprint identifies the keywords and weights of the index, or null when unknown
+     * @throws IOException
+     * @see #isConsistent(String)
+     */
+    void refresh(String fingerprint) throws IOException;
+
+    /**
+     * Builds a fresh index from all the keywords and atomically swaps it in, dropping anything left over in the
+     * current index. Lookups keep using the current index until the swap.
+     * Keywords indexed while the rebuild is running are carried over to the fresh index.
+     *
+     * @param suggestions supplies all keywords and their weight
+     * @throws IOException
+     */
+    void rebuild(Supplier<Map<String, Long>> suggestions) throws IOException;
+
+    /**
+     * @return The number of the index generation currently serving lookups, increased by every rebuild
+     */
+    long getGeneration();
+
+    /**
+     * @return A number increased by every refresh and rebuild, lookups return the same results until it changes
+     */
+    long getVersion();
+
+    /**
+     * Checks that the index holds the keywords and weights identified by a fingerprint, e.g. after reopening
+     * a persistent index. Only the fingerprint recorded by the last commit is compared, the index is not read.
+     * A rebuild records none until the next {@link #refresh(String)}.
+     *
+     * @param fingerprint identifies all the keywords and weights that should be indexed
+     * @return false when the last commit recorded another fingerprint or none
+     */
+    boolean isConsistent(String fingerprint);
+
+    /**
+     * @return The approximate heap used by lookup structures kept besides the index, in bytes
+     */
+    default long getMemoryUsage() {
+        return 0;
+    }
+
+    /**
+     * Completes a lowercase partial word, an exact match first and then by descending weight.
+     * Once the time budget is spent, including the expansion of fuzzy and wildcard terms, the lookup stops and
+     * returns the suggestions found so far.
+     *
+     * @param partialWord
+     * @param scopes only complete with keywords in all these scopes, empty for all keywords
+     * @param count maximum number of suggestions
+     * @param timeoutMillis time budget in milliseconds, 0 for none
+     * @return The matching suggestions
+     * @throws IOException
+     */
+    SuggestionResults lookup(String partialWord, Set<String> scopes, int count, long timeoutMillis) throws IOException;
+
+    /**
+     * Completes a lowercase partial word with any keyword and without a time budget
+     *
+     * @see #lookup(String, Set, int, long)
+     */
+    default List<String> lookup(String partialWord, int count) throws IOException {
+        return lookup(partialWord, Collections.emptySet(), count, 0).getSuggestions();
+    }
+}
@@ -0,0 +1,19 @@
+package io.apicollab.server.service.suggestion;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Suggestions for a partial word
+ */
+@Value
+public class SuggestionResults {
+
+    private final List<String> suggestions;
+
+    /**
+     * True when the lookup ran out of time and the suggestions are only the ones found so far
+     */
+    private final boolean truncated;
+}
@@ -0,0 +1,199 @@
+package io.apicollab.server.service.suggestion;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Splits a document into lowercase keywords and counts them in a single pass over its characters.
+ * Each keyword is lowercased straight into a reusable character pool and looked up in an open addressing table
+ * over that pool, so only one String is created per distinct keyword instead of one per occurrence.
+ * Characters are lowercased one code point at a time, independently of the default locale.
+ * <p>
+ * Instances are not thread safe, but are meant to be reused for many documents.
+ */
+public class SuggestionTokenizer {
+
+    private static final int INITIAL_POOL_SIZE = 16 * 1024;
+    private static final int INITIAL_TABLE_SIZE = 1024;
+
+    /**
+     * Buffers grown beyond this by a large document are released instead of being kept for the next one
+     */
+    private static final int MAX_RETAINED_POOL_SIZE = 1024 * 1024;
+    private static final int MAX_RETAINED_TABLE_SIZE = 64 * 1024;
+
+    /**
+     * Characters of the distinct keywords, followed by the keyword being read
+     */
+    private char[] pool = new char[INITIAL_POOL_SIZE];
+    private int poolLength;
+
+    /**
+     * Offset, length, hash and number of occurrences of each distinct keyword
+     */
+    private int[] offsets = new int[INITIAL_TABLE_SIZE / 2];
+    private int[] lengths = new int[INITIAL_TABLE_SIZE / 2];
+    private int[] hashes = new int[INITIAL_TABLE_SIZE / 2];
+    private int[] counts = new int[INITIAL_TABLE_SIZE / 2];
+    private int size;
+
+    /**
+     * Open addressing table of keyword numbers plus one, 0 marks a free slot
+     */
+    private int[] table = new int[INITIAL_TABLE_SIZE];
+
+    /**
+     * @return true for the characters keywords are split on
+     */
+    public static boolean isSeparator(char c) {
+        switch (c) {
+            case ' ': case '\t': case '\n': case '\u000B': case '\f': case '\r':
+            case '@': case '"': case '&': case ':': case '{': case '}': case '/':
+            case '#': case '.': case ',': case '?': case '$': case '+': case '-':
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Counts the occurrences of every keyword of a document
+     *
+     * @param text
+     * @return The number of occurrences of each lowercase keyword, in order of first occurrence
+     */
+    public Map<String, Integer> count(CharSequence text) {
+        try {
+            tokenize(text);
+            Map<String, Integer> result = new LinkedHashMap<>(size * 4 / 3 + 1);
+            for (int i = 0; i < size; i++) {
+                result.put(new String(pool, offsets[i], lengths[i]), counts[i]);
+            }
+            return result;
+        } finally {
+            reset();
+        }
+    }
+
+    private void tokenize(CharSequence text) {
+        int start = 0;
+        int hash = 0;
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (isSeparator(c)) {
+                add(start, hash);
+                start = poolLength;
+                hash = 0;
+                i++;
+                continue;
+            }
+            ensurePoolCapacity(2);
+            if (Character.isHighSurrogate(c)) {
+                int codePoint = Character.toLowerCase(Character.codePointAt(text, i));
+                int chars = Character.toChars(codePoint, pool, poolLength);
+                for (int j = 0; j < chars; j++) {
+                    hash = 31 * hash + pool[poolLength + j];
+                }
+                poolLength += chars;
+                i += Character.charCount(codePoint);
+            } else {
+                char lower = Character.toLowerCase(c);
+                pool[poolLength++] = lower;
+                hash = 31 * hash + lower;
+                i++;
+            }
+        }
+        add(start, hash);
+    }
+
+    /**
+     * Counts the keyword at the end of the pool, dropping its characters again when it was seen before
+     */
+    private void add(int start, int hash) {
+        int length = poolLength - start;
+        if (length == 0) {
+            return;
+        }
+        int mask = table.length - 1;
+        int slot = mix(hash) & mask;
+        while (table[slot] != 0) {
+            int keyword = table[slot] - 1;
+            if (hashes[keyword] == hash && lengths[keyword] == length && equals(offsets[keyword], start, length)) {
+                counts[keyword]++;
+                poolLength = start;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (size == offsets.length) {
+            offsets = Arrays.copyOf(offsets, size * 2);
+            lengths = Arrays.copyOf(lengths, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+            counts = Arrays.copyOf(counts, size * 2);
+        }
+        offsets[size] = start;
+        lengths[size] = length;
+        hashes[size] = hash;
+        counts[size] = 1;
+        table[slot] = ++size;
+        // Keep the table at most half full
+        if (size * 2 > table.length) {
+            resizeTable(table.length * 2);
+        }
+    }
+
+    private boolean equals(int offset, int start, int length) {
+        for (int i = 0; i < length; i++) {
+            if (pool[offset + i] != pool[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void ensurePoolCapacity(int extra) {
+        if (poolLength + extra > pool.length) {
+            pool = Arrays.copyOf(pool, Math.max(pool.length * 2, poolLength + extra));
+        }
+    }
+
+    private void resizeTable(int tableSize) {
+        table = new int[tableSize];
+        int mask = tableSize - 1;
+        for (int keyword = 0; keyword < size; keyword++) {
+            int slot = mix(hashes[keyword]) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = keyword + 1;
+        }
+    }
+
+    /**
+     * Spreads the bits of a String style hash, which are poor in the low bits for short keywords
+     */
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private void reset() {
+        if (pool.length > MAX_RETAINED_POOL_SIZE) {
+            pool = new char[INITIAL_POOL_SIZE];
+        }
+        if (table.length > MAX_RETAINED_TABLE_SIZE) {
+            table = new int[INITIAL_TABLE_SIZE];
+            offsets = new int[INITIAL_TABLE_SIZE / 2];
+            lengths = new int[INITIAL_TABLE_SIZE / 2];
+            hashes = new int[INITIAL_TABLE_SIZE / 2];
+            counts = new int[INITIAL_TABLE_SIZE / 2];
+        } else {
+            Arrays.fill(table, 0);
+        }
+        poolLength = 0;
+        size = 0;
+    }
+}
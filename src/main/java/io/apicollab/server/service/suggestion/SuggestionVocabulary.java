@@ -0,0 +1,198 @@
+package io.apicollab.server.service.suggestion;
+
+import java.util.*;
+
+/**
+ * Keeps track of which documents every keyword appears in and how often, to weight the suggestions.
+ * The contribution of each document is remembered so it can be replaced when the document is indexed again.
+ * Documents can belong to scopes (e.g. an application or a tag), a keyword is in the scopes of the documents
+ * it appears in.
+ */
+public class SuggestionVocabulary {
+
+    private static final long MAX_OCCURRENCES = 0xFFFFFFFFL;
+
+    private final Map<String, DocumentTerms> documents = new HashMap<>();
+    private final Map<String, TermStats> terms = new HashMap<>();
+
+    /**
+     * Sum of the hashes of every keyword and its weight, kept up to date by each change
+     */
+    private long weightsHash;
+
+    /**
+     * Replaces the keywords of a document, an empty map removes the document
+     *
+     * @param documentId
+     * @param counts number of occurrences of each keyword in the document
+     * @return The new weight of every keyword affected by the change, 0 when a keyword is no longer used
+     */
+    public Map<String, Long> put(String documentId, Map<String, Integer> counts) {
+        return put(documentId, counts, Collections.emptySet());
+    }
+
+    /**
+     * Replaces the keywords and scopes of a document, an empty map removes the document
+     *
+     * @param documentId
+     * @param counts number of occurrences of each keyword in the document
+     * @param scopes scopes the document belongs to
+     * @return The new weight of every keyword affected by the change, 0 when a keyword is no longer used
+     */
+    public synchronized Map<String, Long> put(String documentId, Map<String, Integer> counts, Set<String> scopes) {
+        Map<String, Long> weights = new LinkedHashMap<>();
+        DocumentTerms previous = documents.remove(documentId);
+        // Take the affected keywords out of the hash, they are added back with their new weight
+        if (previous != null) {
+            for (String term : previous.terms) {
+                weights.put(term, weight(term));
+            }
+        }
+        counts.keySet().forEach(term -> weights.putIfAbsent(term, weight(term)));
+        weights.forEach((term, weight) -> weightsHash -= hash(term, weight));
+        if (previous != null) {
+            for (int i = 0; i < previous.terms.length; i++) {
+                TermStats stats = terms.get(previous.terms[i]);
+                stats.documents--;
+                stats.occurrences -= previous.counts[i];
+                stats.removeScopes(previous.scopes);
+                weights.put(previous.terms[i], 0L);
+            }
+        }
+        if (!counts.isEmpty()) {
+            DocumentTerms current = new DocumentTerms(counts.size(), scopes);
+            int i = 0;
+            for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+                TermStats stats = terms.computeIfAbsent(entry.getKey(), TermStats::new);
+                stats.documents++;
+                stats.occurrences += entry.getValue();
+                stats.addScopes(current.scopes);
+                // Share the key instance of the vocabulary instead of keeping one per document
+                current.terms[i] = stats.term;
+                current.counts[i] = entry.getValue();
+                weights.put(stats.term, 0L);
+                i++;
+            }
+            documents.put(documentId, current);
+        }
+        weights.replaceAll((term, weight) -> weight(term));
+        weights.forEach((term, weight) -> weightsHash += hash(term, weight));
+        // Forget keywords that are no longer used by any document
+        weights.forEach((term, weight) -> {
+            if (weight == 0) {
+                terms.remove(term);
+            }
+        });
+        return weights;
+    }
+
+    /**
+     * @return The weight of a keyword, 0 when unknown
+     */
+    public synchronized long weight(String term) {
+        TermStats stats = terms.get(term);
+        if (stats == null || stats.documents <= 0) {
+            return 0;
+        }
+        // Rank by number of documents first and break ties with the number of occurrences
+        return ((long) stats.documents << 32) | Math.min(stats.occurrences, MAX_OCCURRENCES);
+    }
+
+    /**
+     * @return A snapshot of every keyword and its weight
+     */
+    public synchronized Map<String, Long> weights() {
+        Map<String, Long> weights = new HashMap<>(terms.size() * 2);
+        terms.keySet().forEach(term -> weights.put(term, weight(term)));
+        return weights;
+    }
+
+    /**
+     * @return The scopes of the documents a keyword appears in
+     */
+    public synchronized Set<String> scopes(String term) {
+        TermStats stats = terms.get(term);
+        if (stats == null || stats.scopes == null) {
+            return Collections.emptySet();
+        }
+        return new HashSet<>(stats.scopes.keySet());
+    }
+
+    public synchronized int size() {
+        return terms.size();
+    }
+
+    /**
+     * @return A digest of every keyword and its weight, equal for equal weights whatever the order of the changes
+     */
+    public synchronized String fingerprint() {
+        return terms.size() + ":" + Long.toHexString(weightsHash);
+    }
+
+    /**
+     * @return A well mixed hash of a keyword and its weight, 0 for unused keywords
+     */
+    private static long hash(String term, long weight) {
+        if (weight == 0) {
+            return 0;
+        }
+        long hash = 1125899906842597L;
+        for (int i = 0; i < term.length(); i++) {
+            hash = 31 * hash + term.charAt(i);
+        }
+        hash ^= weight * 0x9E3779B97F4A7C15L;
+        // Finalizer of MurmurHash3
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    private static final class TermStats {
+        private final String term;
+        private int documents;
+        private long occurrences;
+
+        /**
+         * Number of documents containing the keyword in each scope, null until the keyword is in a scope
+         */
+        private Map<String, Integer> scopes;
+
+        private TermStats(String term) {
+            this.term = term;
+        }
+
+        private void addScopes(String[] documentScopes) {
+            if (documentScopes.length == 0) {
+                return;
+            }
+            if (scopes == null) {
+                scopes = new HashMap<>();
+            }
+            for (String scope : documentScopes) {
+                scopes.merge(scope, 1, Integer::sum);
+            }
+        }
+
+        private void removeScopes(String[] documentScopes) {
+            for (String scope : documentScopes) {
+                scopes.computeIfPresent(scope, (s, count) -> count > 1 ? count - 1 : null);
+            }
+        }
+    }
+
+    private static final class DocumentTerms {
+        private static final String[] NO_SCOPES = new String[0];
+
+        private final String[] terms;
+        private final int[] counts;
+        private final String[] scopes;
+
+        private DocumentTerms(int size, Set<String> scopes) {
+            terms = new String[size];
+            counts = new int[size];
+            this.scopes = scopes.isEmpty() ? NO_SCOPES : scopes.toArray(new String[0]);
+        }
+    }
+}
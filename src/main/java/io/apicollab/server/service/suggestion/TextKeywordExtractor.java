@@ -0,0 +1,19 @@
+package io.apicollab.server.service.suggestion;
+
+import java.util.Map;
+
+/**
+ * Extracts every word of the raw specification text, whatever its role in the specification.
+ */
+public class TextKeywordExtractor implements KeywordExtractor {
+
+    /**
+     * Reused across documents, allocates only one String per distinct keyword of a document
+     */
+    private static final ThreadLocal<SuggestionTokenizer> TOKENIZER = ThreadLocal.withInitial(SuggestionTokenizer::new);
+
+    @Override
+    public Map<String, Integer> extract(String document) {
+        return TOKENIZER.get().count(document);
+    }
+}
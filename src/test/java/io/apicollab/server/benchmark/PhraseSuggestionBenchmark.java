@@ -0,0 +1,94 @@
+package io.apicollab.server.benchmark;
+
+import io.apicollab.server.service.suggestion.PhraseExtractor;
+import io.apicollab.server.service.suggestion.PhraseSuggestionEngine;
+import io.apicollab.server.service.suggestion.QuerySuggestionEngine;
+import io.apicollab.server.service.suggestion.SuggestionEngine;
+import io.apicollab.server.service.suggestion.TextKeywordExtractor;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares completing "get user" with one lookup on the phrase index and with one lookup per word on the
+ * keyword index, as the UI did before phrases could be completed. Run the main method from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PhraseSuggestionBenchmark {
+
+    private static final String[] VERBS = {"get", "list", "create", "update", "delete", "find", "search", "patch"};
+    private static final String[] NOUNS = {"user", "order", "pet", "store", "invoice", "account", "payment", "address"};
+    private static final String[] FIELDS = {"id", "name", "status", "date", "email", "tag", "owner", "type"};
+
+    /**
+     * Number of operations of the specification
+     */
+    @Param({"1000", "10000"})
+    private int operations;
+
+    private SuggestionEngine phraseEngine;
+    private SuggestionEngine keywordEngine;
+
+    @Setup
+    public void setup() throws IOException {
+        StringBuilder spec = new StringBuilder("openapi: 3.0.0\ninfo: {title: Benchmark, version: '1'}\npaths:\n");
+        for (int i = 0; i < operations; i++) {
+            String verb = VERBS[i % VERBS.length];
+            String noun = NOUNS[(i / VERBS.length) % NOUNS.length] + (i / (VERBS.length * NOUNS.length));
+            String field = FIELDS[i % FIELDS.length];
+            spec.append("  /").append(noun).append(i).append(":\n")
+                    .append("    get: {summary: ").append(verb).append(' ').append(noun).append(" by ").append(field)
+                    .append(", responses: {'200': {description: ok}}}\n");
+        }
+        String document = spec.toString();
+        phraseEngine = new PhraseSuggestionEngine();
+        phraseEngine.index(weights(new PhraseExtractor().extract(document)));
+        phraseEngine.refresh();
+        keywordEngine = new QuerySuggestionEngine();
+        keywordEngine.index(weights(new TextKeywordExtractor().extract(document)));
+        keywordEngine.refresh();
+    }
+
+    private static Map<String, Long> weights(Map<String, Integer> counts) {
+        Map<String, Long> weights = new HashMap<>();
+        counts.forEach((keyword, count) -> weights.put(keyword, (long) count));
+        return weights;
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        phraseEngine.close();
+        keywordEngine.close();
+    }
+
+    @Benchmark
+    public List<String> phrase() throws IOException {
+        return phraseEngine.lookup("get user", 10);
+    }
+
+    @Benchmark
+    public List<String> perWord() throws IOException {
+        List<String> suggestions = new ArrayList<>(keywordEngine.lookup("get", 10));
+        suggestions.addAll(keywordEngine.lookup("user", 10));
+        return suggestions;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PhraseSuggestionBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,78 @@
+package io.apicollab.server.benchmark;
+
+import io.apicollab.server.service.suggestion.SuggestionTokenizer;
+import org.apache.commons.lang3.StringUtils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Compares counting the keywords of a large specification with {@link SuggestionTokenizer} and with the regular
+ * expression split it replaced. Run the main method from the test classpath, the GC profiler reports the
+ * allocation rate of each.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SuggestionTokenizerBenchmark {
+
+    private static final String REGEX_INVALID_CHAR = "[\\s@\"&:{}/#.,?$+-]+";
+
+    /**
+     * Approximate size of the specification in characters
+     */
+    @Param({"100000", "2000000"})
+    private int size;
+
+    private String document;
+    private SuggestionTokenizer tokenizer;
+
+    @Setup
+    public void setup() throws IOException {
+        String spec;
+        try (InputStream in = getClass().getResourceAsStream("/apis/valid.yml")) {
+            spec = StreamUtils.copyToString(in, StandardCharsets.UTF_8);
+        }
+        StringBuilder text = new StringBuilder(size + spec.length());
+        for (int i = 0; text.length() < size; i++) {
+            // Vary the keywords a little so the vocabulary grows with the document like a real one does
+            text.append(spec.replace("Pet", "Pet" + (i % 100)));
+        }
+        document = text.toString();
+        tokenizer = new SuggestionTokenizer();
+    }
+
+    @Benchmark
+    public Map<String, Integer> regex() {
+        return Arrays.stream(document.split(REGEX_INVALID_CHAR))
+                .filter(StringUtils::isNotBlank)
+                .map(String::toLowerCase)
+                .collect(Collectors.toMap(w -> w, w -> 1, Integer::sum));
+    }
+
+    @Benchmark
+    public Map<String, Integer> tokenizer() {
+        return tokenizer.count(document);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SuggestionTokenizerBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
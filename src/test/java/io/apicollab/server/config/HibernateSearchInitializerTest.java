@@ -0,0 +1,166 @@
+package io.apicollab.server.config;
+
+import io.apicollab.server.config.HibernateSearchInitializer.Synchronization;
+import io.apicollab.server.constant.ApiStatus;
+import io.apicollab.server.domain.Api;
+import io.apicollab.server.domain.Application;
+import io.apicollab.server.repository.ApplicationRepository;
+import io.apicollab.server.service.ApiService;
+import io.apicollab.server.service.ApplicationService;
+import org.hibernate.search.jpa.FullTextEntityManager;
+import org.hibernate.search.jpa.Search;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class HibernateSearchInitializerTest {
+
+    @Autowired
+    ApplicationRepository applicationRepository;
+
+    @Autowired
+    ApplicationService applicationService;
+
+    @Autowired
+    ApiService apiService;
+
+    @Autowired
+    HibernateSearchInitializer initializer;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    private Api fruits;
+    private Api space;
+
+    private Api createApi(Application app, String name, String version, String apiDescription) {
+        Api api = Api.builder()
+                .name(name)
+                .version(version)
+                .description("A sample description")
+                .swaggerDefinition(apiDescription)
+                .status(ApiStatus.BETA)
+                .build();
+        return apiService.create(app, api);
+    }
+
+    @Before
+    public void setup() {
+        Application app = new Application();
+        app.setName("indexApp");
+        app.setEmail("index@gmail.com");
+        app = applicationService.create(app);
+        fruits = createApi(app, "Fruits API", "1.0", "apple banana");
+        space = createApi(app, "Space API", "2.0", "rocket galaxy");
+        // Other tests delete apis behind the back of the index
+        initializer.synchronizeIndex();
+    }
+
+    @After
+    public void cleanUp() {
+        applicationRepository.deleteAll();
+    }
+
+    private void withIndex(Consumer<FullTextEntityManager> action) {
+        new TransactionTemplate(transactionManager).execute(status -> {
+            action.accept(Search.getFullTextEntityManager(entityManager));
+            return null;
+        });
+    }
+
+    private int indexedCount(String query) {
+        return apiService.searchProjections(query, 10, null).getTotalCount();
+    }
+
+    @Test
+    public void currentIndexIsReused() {
+        assertThat(initializer.synchronizeIndex()).isEqualTo(Synchronization.CURRENT);
+        assertThat(indexedCount("banana")).isEqualTo(1);
+    }
+
+    @Test
+    public void missingApisAreCaughtUp() {
+        withIndex(index -> index.purge(Api.class, fruits.getId()));
+        assertThat(indexedCount("banana")).isZero();
+
+        assertThat(initializer.synchronizeIndex()).isEqualTo(Synchronization.CAUGHT_UP);
+        assertThat(indexedCount("banana")).isEqualTo(1);
+        assertThat(initializer.synchronizeIndex()).isEqualTo(Synchronization.CURRENT);
+    }
+
+    /**
+     * A change that never reached the index is caught up by its revision, even though the number of apis and
+     * their newest modification date are unchanged
+     */
+    @Test
+    public void lostChangesAreCaughtUp() {
+        jdbcTemplate.update("UPDATE API SET SWAGGER_DEFINITION = 'apple cherry', REVISION = REVISION + 1 WHERE ID = ?",
+                fruits.getId());
+        assertThat(indexedCount("cherry")).isZero();
+
+        assertThat(initializer.synchronizeIndex()).isEqualTo(Synchronization.CAUGHT_UP);
+        assertThat(indexedCount("cherry")).isEqualTo(1);
+        assertThat(initializer.synchronizeIndex()).isEqualTo(Synchronization.CURRENT);
+    }
+
+    @Test
+    public void deletedApisArePurged() {
+        jdbcTemplate.update("DELETE FROM API WHERE ID = ?", space.getId());
+        assertThat(indexedCount("rocket")).isEqualTo(1);
+
+        assertThat(initializer.synchronizeIndex()).isEqualTo(Synchronization.CAUGHT_UP);
+        assertThat(indexedCount("rocket")).isZero();
+        assertThat(indexedCount("banana")).isEqualTo(1);
+    }
+
+    @Test
+    public void indexAnalyzedOtherwiseIsRebuilt() throws IOException {
+        Path marker = Files.createTempDirectory("index").resolve("api-analysis.txt");
+        ReflectionTestUtils.setField(initializer, "analysisMarkerPath", marker.toString());
+        try {
+            assertThat(initializer.synchronizeIndex()).isEqualTo(Synchronization.REBUILT);
+            assertThat(initializer.synchronizeIndex()).isEqualTo(Synchronization.CURRENT);
+
+            Files.write(marker, "version=1".getBytes(StandardCharsets.UTF_8));
+            assertThat(initializer.synchronizeIndex()).isEqualTo(Synchronization.REBUILT);
+            assertThat(indexedCount("banana")).isEqualTo(1);
+        } finally {
+            ReflectionTestUtils.setField(initializer, "analysisMarkerPath", "");
+        }
+    }
+
+    @Test
+    public void emptyIndexIsRebuilt() {
+        withIndex(index -> index.purgeAll(Api.class));
+        assertThat(indexedCount("banana")).isZero();
+
+        assertThat(initializer.synchronizeIndex()).isEqualTo(Synchronization.REBUILT);
+        assertThat(indexedCount("banana")).isEqualTo(1);
+        assertThat(indexedCount("rocket")).isEqualTo(1);
+    }
+}
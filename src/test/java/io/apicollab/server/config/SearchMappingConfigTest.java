@@ -0,0 +1,29 @@
+package io.apicollab.server.config;
+
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SearchMappingConfigTest {
+
+    private static SearchMappingConfig config(String stopWords, String exceptions) {
+        SearchMappingConfig config = new SearchMappingConfig();
+        ReflectionTestUtils.setField(config, "stopWords", stopWords);
+        ReflectionTestUtils.setField(config, "stopWordExceptions", exceptions);
+        return config;
+    }
+
+    @Test
+    public void stopWordsLessExceptions() {
+        assertThat(config("Type, string,200", "").getStopWords()).isEqualTo("200,string,type");
+        assertThat(config("type,string,200", "String").getStopWords()).isEqualTo("200,type");
+    }
+
+    @Test
+    public void exceptionsChangeFingerprint() {
+        assertThat(config("type,string", "string").getAnalysisFingerprint())
+                .isNotEqualTo(config("type,string", "").getAnalysisFingerprint())
+                .isEqualTo(config("type", "").getAnalysisFingerprint());
+    }
+}
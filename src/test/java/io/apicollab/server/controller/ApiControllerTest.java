@@ -4,8 +4,10 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.jayway.jsonpath.DocumentContext;
 import com.jayway.jsonpath.JsonPath;
+import io.apicollab.server.domain.Api;
 import io.apicollab.server.repository.ApiRepository;
 import org.apache.commons.io.IOUtils;
+import org.hibernate.search.jpa.Search;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -20,7 +22,11 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 import java.io.IOException;
 import java.util.Arrays;
 
@@ -46,12 +52,23 @@ public class ApiControllerTest {
     @Autowired
     private ApiRepository apiRepository;
 
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
     private String validAPISpec;
 
     @Before
     public void cleanup() {
         validAPISpec = getFile("apis/valid.yml");
         apiRepository.deleteAll();
+        // The sql scripts delete apis behind the back of the index, which then counts them as search hits
+        new TransactionTemplate(transactionManager).execute(status -> {
+            Search.getFullTextEntityManager(entityManager).purgeAll(Api.class);
+            return null;
+        });
     }
 
     private String getFile(String fileName) {
@@ -332,6 +349,62 @@ public class ApiControllerTest {
                 .andExpect(jsonPath("$.items.[0].name").value("Space API"));
     }
 
+    @Test
+    public void searchApisPages() throws Exception {
+        String spec1v1 = validAPISpec
+                .replaceFirst("title:.*", "title: Fruits API")
+                .replaceFirst("description.*", "description: Banana apples oranges are cool");
+
+        String spec2v1 = validAPISpec
+                .replaceFirst("title:.*", "title: Juice API")
+                .replaceFirst("version.*", "version: 2.0")
+                .replaceFirst("description.*", "description: Pressed apples");
+
+        mockMvc.perform(MockMvcRequestBuilders.multipart("/applications/1/apis")
+                .file(new MockMultipartFile("swaggerDoc", spec1v1.getBytes()))).andExpect(status().isCreated());
+        mockMvc.perform(MockMvcRequestBuilders.multipart("/applications/1/apis")
+                .file(new MockMultipartFile("swaggerDoc", spec2v1.getBytes()))).andExpect(status().isCreated());
+
+        String response = mockMvc.perform(get("/apis/search?query=apples&limit=1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalCount").value(2))
+                .andExpect(jsonPath("$.items.*", hasSize(1)))
+                .andExpect(jsonPath("$.nextCursor").isNotEmpty())
+                .andExpect(jsonPath("$.facets.status.BETA").value(2))
+                .andExpect(jsonPath("$.facets.application.1").value(2))
+                .andReturn().getResponse().getContentAsString();
+        String cursor = JsonPath.read(response, "$.nextCursor");
+
+        mockMvc.perform(get("/apis/search?query=apples&limit=1&cursor=" + cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalCount").value(2))
+                .andExpect(jsonPath("$.items.*", hasSize(1)))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist())
+                .andExpect(jsonPath("$.facets").doesNotExist());
+    }
+
+    @Test
+    public void searchApisSnippets() throws Exception {
+        String spec = validAPISpec.replaceFirst("description.*", "description: Pressed apples");
+        mockMvc.perform(MockMvcRequestBuilders.multipart("/applications/1/apis")
+                .file(new MockMultipartFile("swaggerDoc", spec.getBytes()))).andExpect(status().isCreated());
+
+        mockMvc.perform(get("/apis/search?query=apple&snippets=true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].snippets", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].snippets[0]").value(containsString("Pressed <em>apples</em>")));
+        mockMvc.perform(get("/apis/search?query=apple"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].snippets").doesNotExist());
+    }
+
+    @Test
+    public void searchApisInvalidPaging() throws Exception {
+        mockMvc.perform(get("/apis/search?query=apples&limit=0")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/apis/search?query=apples&limit=101")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/apis/search?query=apples&cursor=invalid")).andExpect(status().isBadRequest());
+    }
+
     @Test
     public void deleteNonExistingApi() throws Exception {
         mockMvc.perform(delete("/apis/12345")).andExpect(status().isNotFound());
@@ -0,0 +1,43 @@
+package io.apicollab.server.mapper;
+
+import io.apicollab.server.service.ApiSpecParserService;
+import io.swagger.v3.oas.models.OpenAPI;
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+
+import static io.apicollab.server.mapper.OpenApiFieldBridge.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OpenApiFieldBridgeTest {
+
+    private static OpenAPI parse(String fileName) throws IOException {
+        String document = IOUtils.toString(OpenApiFieldBridgeTest.class.getClassLoader().getResourceAsStream(fileName));
+        return ApiSpecParserService.parseOpenAPI(document);
+    }
+
+    @Test
+    public void extractOpenApi() throws IOException {
+        Map<String, Set<String>> values = OpenApiFieldBridge.extract(parse("apis/valid.yml"));
+        assertThat(values.get(PATH_SUFFIX)).containsExactly("/pets");
+        assertThat(values.get(METHOD_SUFFIX)).containsExactly("get");
+        assertThat(values.get(OPERATION_SUFFIX)).containsExactly("listpets");
+        assertThat(values.get(SCHEMA_SUFFIX)).containsExactly("pet", "pets", "error");
+        assertThat(values.get(TAG_SUFFIX)).containsExactly("pets");
+        assertThat(values.get(SERVER_SUFFIX)).containsExactly("http://petstore.swagger.io/v1");
+    }
+
+    @Test
+    public void extractSwagger() throws IOException {
+        Map<String, Set<String>> values = OpenApiFieldBridge.extract(parse("apis/valid_swagger.yml"));
+        assertThat(values.get(PATH_SUFFIX)).containsExactly("/inventory");
+        assertThat(values.get(METHOD_SUFFIX)).containsExactly("get", "post");
+        assertThat(values.get(OPERATION_SUFFIX)).containsExactly("searchinventory", "addinventory");
+        assertThat(values.get(SCHEMA_SUFFIX)).contains("inventoryitem", "manufacturer");
+        assertThat(values.get(TAG_SUFFIX)).contains("admins", "developers");
+        assertThat(values.get(SERVER_SUFFIX)).isNotEmpty();
+    }
+}
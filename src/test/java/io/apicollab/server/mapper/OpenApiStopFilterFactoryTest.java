@@ -0,0 +1,62 @@
+package io.apicollab.server.mapper;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.core.LowerCaseFilterFactory;
+import org.apache.lucene.analysis.custom.CustomAnalyzer;
+import org.apache.lucene.analysis.miscellaneous.WordDelimiterFilterFactory;
+import org.apache.lucene.analysis.standard.StandardTokenizerFactory;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OpenApiStopFilterFactoryTest {
+
+    /**
+     * Words of a specification as the text field indexes them, see SearchMappingConfig
+     */
+    private static List<String> analyze(String fileName, String stopWords) throws IOException {
+        String document = IOUtils.toString(OpenApiStopFilterFactoryTest.class.getClassLoader().getResourceAsStream(fileName));
+        Analyzer analyzer = CustomAnalyzer.builder()
+                .withTokenizer(StandardTokenizerFactory.class)
+                .addTokenFilter(WordDelimiterFilterFactory.class, "preserveOriginal", "1", "splitOnNumerics", "0",
+                        "stemEnglishPossessive", "0")
+                .addTokenFilter(LowerCaseFilterFactory.class)
+                .addTokenFilter(OpenApiStopFilterFactory.class, OpenApiStopFilterFactory.WORDS_PARAMETER, stopWords)
+                .build();
+        List<String> words = new ArrayList<>();
+        try (TokenStream tokens = analyzer.tokenStream("swaggerDefinition", document)) {
+            CharTermAttribute term = tokens.addAttribute(CharTermAttribute.class);
+            tokens.reset();
+            while (tokens.incrementToken()) {
+                words.add(term.toString());
+            }
+            tokens.end();
+        }
+        return words;
+    }
+
+    @Test
+    public void dropStructuralWords() throws IOException {
+        List<String> words = analyze("apis/valid.yml", OpenApiStopFilterFactory.DEFAULT_WORDS);
+        assertThat(words).doesNotContain("type", "string", "description", "200", "application", "json");
+        assertThat(words).contains("petstore", "listpets", "list", "pets", "limit");
+    }
+
+    /**
+     * Structural words make up about half of the words of a specification, each one a posting of the index
+     */
+    @Test
+    public void indexFewerWords() throws IOException {
+        for (String fileName : new String[]{"apis/valid.yml", "apis/valid_swagger.yml"}) {
+            assertThat(analyze(fileName, OpenApiStopFilterFactory.DEFAULT_WORDS).size())
+                    .isLessThan(analyze(fileName, "").size() * 3 / 4);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package io.apicollab.server.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ApiSearchCacheTest {
+
+    private static final List<String> RESULTS = asList("1", "2");
+
+    private final ApiSearchCache<String, List<String>> cache = new ApiSearchCache<>(300, (key, results) -> 100L * results.size() / 2);
+
+    @Test
+    public void hitAfterPut() {
+        assertThat(cache.get(1L, "pet")).isNull();
+        cache.put(1L, "pet", RESULTS);
+        assertThat(cache.get(1L, "pet")).isEqualTo(RESULTS);
+    }
+
+    @Test
+    public void invalidateOnOtherVersion() {
+        cache.get(1L, "pet");
+        cache.put(1L, "pet", RESULTS);
+        assertThat(cache.get(2L, "pet")).isNull();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    public void ignoreResultsOfOtherVersions() {
+        cache.get(2L, "pet");
+        cache.put(1L, "pet", RESULTS);
+        assertThat(cache.get(2L, "pet")).isNull();
+    }
+
+    @Test
+    public void keepEntriesOnOlderVersions() {
+        cache.get(2L, "pet");
+        cache.put(2L, "pet", RESULTS);
+        // A search still reading from the previous index
+        assertThat(cache.get(1L, "pet")).isNull();
+        cache.put(1L, "pet", asList("1"));
+        assertThat(cache.get(2L, "pet")).isEqualTo(RESULTS);
+    }
+
+    @Test
+    public void evictByWeight() {
+        cache.put(1L, "pet", asList("1", "2", "3", "4"));
+        cache.put(1L, "store", RESULTS);
+        assertThat(cache.weight()).isEqualTo(300);
+        cache.put(1L, "user", RESULTS);
+        assertThat(cache.get(1L, "pet")).isNull();
+        assertThat(cache.weight()).isEqualTo(200);
+    }
+
+    @Test
+    public void evictLeastRecentlyUsed() {
+        cache.get(1L, "pet0");
+        for (int i = 0; i < 10; i++) {
+            cache.put(1L, "pet" + i, RESULTS);
+            // Keep the first entry in use
+            cache.get(1L, "pet0");
+        }
+        assertThat(cache.size()).isEqualTo(3);
+        assertThat(cache.get(1L, "pet0")).isEqualTo(RESULTS);
+        assertThat(cache.get(1L, "pet1")).isNull();
+    }
+
+    @Test
+    public void disabledWithoutEntries() {
+        ApiSearchCache<String, List<String>> disabled = new ApiSearchCache<>(0, (key, results) -> 100L);
+        disabled.get(1L, "pet");
+        disabled.put(1L, "pet", RESULTS);
+        assertThat(disabled.get(1L, "pet")).isNull();
+    }
+
+    @Test
+    public void reportMetrics() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        cache.metrics("apiSearch").bindTo(registry);
+        cache.get(1L, "pet");
+        cache.put(1L, "pet", RESULTS);
+        cache.get(1L, "pet");
+        cache.get(2L, "pet");
+        assertThat(registry.get("cache.size").gauge().value()).isZero();
+        assertThat(registry.get("cache.gets").tag("result", "hit").functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("cache.gets").tag("result", "miss").functionCounter().count()).isEqualTo(2);
+        assertThat(registry.get("cache.invalidations").functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("cache.hit.ratio").gauge().value()).isEqualTo(1.0 / 3);
+        assertThat(registry.get("cache.weight").gauge().value()).isZero();
+    }
+}
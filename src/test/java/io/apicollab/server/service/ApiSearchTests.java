@@ -3,7 +3,13 @@ package io.apicollab.server.service;
 import io.apicollab.server.constant.ApiStatus;
 import io.apicollab.server.domain.Api;
 import io.apicollab.server.domain.Application;
+import io.apicollab.server.dto.ApiDTO;
+import io.apicollab.server.exception.InvalidCursorException;
+import io.apicollab.server.mapper.ApiMapper;
+import io.apicollab.server.repository.ApiSearchPage;
 import io.apicollab.server.repository.ApplicationRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.commons.io.IOUtils;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -12,10 +18,16 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit4.SpringRunner;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest
@@ -30,6 +42,12 @@ public class ApiSearchTests {
     @Autowired
     ApiService apiService;
 
+    @Autowired
+    ApiMapper apiMapper;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
     private Application createApp(String name, String email) {
         Application app = new Application();
         app.setEmail(name);
@@ -98,6 +116,24 @@ public class ApiSearchTests {
         assertThat(results.get(1).getName()).isEqualToIgnoringCase("Fruits API");
     }
 
+    /**
+     * Repeated searches are answered from the cache until the index changes
+     */
+    @Test
+    public void searchCachedUntilIndexChanges() {
+        double hits = cacheHits();
+        assertThat(names(apiService.search("banana", 10, null).getApis())).containsExactly("Fruits API");
+        assertThat(names(apiService.search("  BANANA ", 10, null).getApis())).containsExactly("Fruits API");
+        assertThat(cacheHits()).isEqualTo(hits + 1);
+
+        createApi(applicationRepository.findAll().iterator().next(), "Banana API", "5.0", "banana bread", ApiStatus.BETA);
+        assertThat(names(apiService.search("banana", 10, null).getApis())).containsExactlyInAnyOrder("Fruits API", "Banana API");
+    }
+
+    private double cacheHits() {
+        return meterRegistry.get("cache.gets").tag("cache", "apiSearch").tag("result", "hit").functionCounter().count();
+    }
+
     /**
      * Search to ensure Archived APIs are not returned.
      */
@@ -154,4 +190,172 @@ public class ApiSearchTests {
         assertThat(results.get(0).getName()).isEqualToIgnoringCase("Tech API");
     }
 
+    /**
+     * Paging through the results with a cursor returns every result once, in relevance order
+     */
+    @Test
+    public void searchPages() {
+        List<String> names = new ArrayList<>();
+        String cursor = null;
+        do {
+            ApiSearchPage<Api> page = apiService.search("baN TECH", 2, cursor);
+            assertThat(page.getTotalCount()).isEqualTo(3);
+            assertThat(page.getApis()).isNotEmpty();
+            page.getApis().forEach(api -> names.add(api.getName()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        assertThat(names).containsExactlyElementsOf(names(apiService.search("baN TECH")));
+        assertThat(names).containsExactlyInAnyOrder("Tech API", "Fruits API", "Space API");
+    }
+
+    /**
+     * The last page has no cursor
+     */
+    @Test
+    public void searchSinglePage() {
+        ApiSearchPage<Api> page = apiService.search("space", 2, null);
+        assertThat(page.getApis()).hasSize(1);
+        assertThat(page.getTotalCount()).isEqualTo(1);
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    public void searchInvalidCursor() {
+        assertThatThrownBy(() -> apiService.search("space", 2, "not a cursor"))
+                .isInstanceOf(InvalidCursorException.class);
+    }
+
+    /**
+     * Projections read from the index list the same fields as the loaded apis
+     */
+    @Test
+    public void searchProjections() {
+        Application app = createApp("testApp2", "test2@gmail.com");
+        apiService.create(app, Api.builder()
+                .name("Banking API")
+                .version("5.0")
+                .description("Accounts and payments")
+                .swaggerDefinition("banking technology")
+                .tags(Arrays.asList("finance", "payments"))
+                .status(ApiStatus.BETA)
+                .build());
+
+        ApiSearchPage<ApiDTO> projections = apiService.searchProjections("baN TECH", 4, null);
+        ApiSearchPage<ApiDTO> loaded = apiService.search("baN TECH", 4, null).map(apiMapper::toDto);
+        assertThat(projections).isEqualTo(loaded);
+        assertThat(projections.getApis()).hasSize(4);
+        assertThat(projections.getTotalCount()).isEqualTo(4);
+        ApiDTO banking = projections.getApis().stream().filter(api -> api.getName().equals("Banking API")).findFirst().get();
+        assertThat(banking.getTags()).containsExactly("finance", "payments");
+        assertThat(banking.getApplicationId()).isEqualTo(app.getId());
+        assertThat(banking.getSwaggerDefinition()).isNull();
+    }
+
+    /**
+     * Field scoped clauses only match their field of the parsed specification, not its text
+     */
+    @Test
+    public void searchSpecificationFields() throws IOException {
+        Application app = createApp("testApp3", "test3@gmail.com");
+        String petstore = IOUtils.toString(getClass().getClassLoader().getResourceAsStream("apis/valid.yml"));
+        createApi(app, "Petstore API", "1.0", petstore, ApiStatus.STABLE);
+        createApi(app, "Pet Docs API", "2.0", "pet listing documentation, see /pets and listPets", ApiStatus.STABLE);
+
+        assertThat(names(apiService.search("path:/pets"))).containsExactly("Petstore API");
+        assertThat(names(apiService.search("path:/pet"))).containsExactly("Petstore API");
+        assertThat(names(apiService.search("path:/pets/"))).isEmpty();
+        assertThat(names(apiService.search("operation:listPets"))).containsExactly("Petstore API");
+        assertThat(names(apiService.search("OPERATION:\"listPets\" schema:pet tag:pets method:get"))).containsExactly("Petstore API");
+        assertThat(names(apiService.search("server:http://petstore.swagger.io"))).containsExactly("Petstore API");
+        assertThat(names(apiService.search("operation:listPet"))).isEmpty();
+        assertThat(names(apiService.search("method:delete listing"))).isEmpty();
+        assertThat(names(apiService.search("listing"))).containsExactly("Pet Docs API");
+        assertThat(names(apiService.search("path:/pets sample"))).containsExactly("Petstore API");
+    }
+
+    /**
+     * Identifiers match by their words, structural keywords of the specification match nothing
+     */
+    @Test
+    public void searchIdentifierWords() {
+        Application app = createApp("testApp5", "test5@gmail.com");
+        createApi(app, "Inventory API", "1.0", "operationId: listStockItems\nschema: stock_level\ntype: string", ApiStatus.STABLE);
+
+        assertThat(names(apiService.search("liststockitems"))).containsExactly("Inventory API");
+        assertThat(names(apiService.search("stock items"))).containsExactly("Inventory API");
+        assertThat(names(apiService.search("level"))).containsExactly("Inventory API");
+        assertThat(names(apiService.search("string"))).isEmpty();
+        assertThat(names(apiService.search("string level"))).containsExactly("Inventory API");
+    }
+
+    /**
+     * Snippets highlight the words of identifiers and words matching as prefixes
+     */
+    @Test
+    public void searchSnippets() {
+        Application app = createApp("testApp6", "test6@gmail.com");
+        createApi(app, "Warehouse API", "1.0", "paths:\n  /stock:\n    get:\n      operationId: listStockItems\n"
+                + "      summary: Lists the <stocked> items & levels", ApiStatus.STABLE);
+
+        ApiSearchPage<ApiDTO> page = apiService.searchProjections("stock level", 10, null, true);
+        assertThat(page.getApis()).extracting(ApiDTO::getName).containsExactly("Warehouse API");
+        assertThat(page.getSnippets().get(page.getApis().get(0).getApiId())).containsExactly(
+                "paths: /<em>stock</em>: get: operationId: list<em>Stock</em>Items summary: Lists the &lt;<em>stocked</em>&gt; "
+                        + "items &amp; <em>levels</em>");
+        assertThat(apiService.searchProjections("stock level", 10, null).getSnippets()).isNull();
+    }
+
+    /**
+     * Snippets start at the earliest matches, even when the words of a prefix sorting first match later in the text
+     */
+    @Test
+    public void searchSnippetsStartAtEarliestMatches() {
+        Application app = createApp("testApp7", "test7@gmail.com");
+        StringBuilder spec = new StringBuilder("summary: itemz first\n");
+        for (int i = 0; i < 150; i++) {
+            spec.append("x").append(i).append(": itema").append(i).append('\n');
+        }
+        createApi(app, "Catalog API", "1.0", spec.toString(), ApiStatus.STABLE);
+
+        ApiSearchPage<ApiDTO> page = apiService.searchProjections("item", 10, null, true);
+        assertThat(page.getSnippets().get(page.getApis().get(0).getApiId()).get(0))
+                .startsWith("summary: <em>itemz</em> first x0: <em>itema0</em>");
+    }
+
+    private static List<String> names(Collection<Api> apis) {
+        return apis.stream().map(Api::getName).collect(Collectors.toList());
+    }
+
+    /**
+     * The first page counts all the matching apis by status, tag and application
+     */
+    @Test
+    public void searchFacets() {
+        Application app = createApp("testApp4", "test4@gmail.com");
+        apiService.create(app, Api.builder()
+                .name("Banking API")
+                .version("5.0")
+                .description("Accounts and payments")
+                .swaggerDefinition("banking technology")
+                .tags(Arrays.asList("finance", "payments"))
+                .status(ApiStatus.BETA)
+                .build());
+        apiService.create(app, Api.builder()
+                .name("Billing API")
+                .version("6.0")
+                .description("Invoices")
+                .swaggerDefinition("billing technology")
+                .tags(Arrays.asList("finance"))
+                .status(ApiStatus.DEPRECATED)
+                .build());
+
+        ApiSearchPage<Api> page = apiService.search("baN TECH", 1, null);
+        assertThat(page.getFacets().get("status")).containsEntry("STABLE", 2).containsEntry("BETA", 2)
+                .containsEntry("DEPRECATED", 1).hasSize(3);
+        assertThat(page.getFacets().get("tag")).containsExactly(entry("finance", 2), entry("payments", 1));
+        assertThat(page.getFacets().get("application")).containsEntry(app.getId(), 2).hasSize(2);
+
+        assertThat(apiService.search("baN TECH", 1, page.getNextCursor()).getFacets()).isNull();
+    }
+
 }
@@ -226,4 +226,29 @@ public class ApiServiceTest {
         final String apiId = dbApi.getId();
         assertThatExceptionOfType(NotFoundException.class).isThrownBy(() -> apiService.findOne(apiId));
     }
+
+    @Test
+    public void readSearchableApisInBatches() {
+        Application application = applicationService.create(Application.builder().name("Application_1").email("app1@appcompany.com").build());
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Api api = Api.builder().name("Api_" + i).version("0." + i).swaggerDefinition("{}").description("a description").status(ApiStatus.BETA).build();
+            ids.add(applicationService.createNewApiVersion(application.getId(), api).getId());
+        }
+        Api archived = Api.builder().name("Api_5").version("0.5").swaggerDefinition("{}").description("a description").status(ApiStatus.ARCHIVED).build();
+        applicationService.createNewApiVersion(application.getId(), archived);
+
+        List<Integer> batchSizes = new ArrayList<>();
+        List<String> readIds = new ArrayList<>();
+        apiService.forEachSearchableBatch(null, 2, batch -> {
+            batchSizes.add(batch.size());
+            batch.forEach(api -> readIds.add(api.getId()));
+        });
+        assertThat(batchSizes).containsExactly(2, 2, 1);
+        assertThat(readIds).containsExactlyInAnyOrder(ids.toArray(new String[0]));
+
+        readIds.clear();
+        apiService.forEachSearchableBatch(ids.subList(0, 3), 2, batch -> batch.forEach(api -> readIds.add(api.getId())));
+        assertThat(readIds).containsExactlyInAnyOrder(ids.subList(0, 3).toArray(new String[0]));
+    }
 }
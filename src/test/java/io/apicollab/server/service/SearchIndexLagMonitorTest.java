@@ -0,0 +1,91 @@
+package io.apicollab.server.service;
+
+import io.apicollab.server.constant.ApiStatus;
+import io.apicollab.server.domain.Api;
+import io.apicollab.server.domain.Application;
+import io.apicollab.server.event.ApiChangedEvent;
+import io.apicollab.server.repository.ApplicationRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class SearchIndexLagMonitorTest {
+
+    @Autowired
+    ApplicationRepository applicationRepository;
+
+    @Autowired
+    ApplicationService applicationService;
+
+    @Autowired
+    ApiService apiService;
+
+    @Autowired
+    SearchIndexLagMonitor monitor;
+
+    private Api api;
+
+    @Before
+    public void setup() {
+        Application app = new Application();
+        app.setName("lagApp");
+        app.setEmail("lag@gmail.com");
+        app = applicationService.create(app);
+        api = apiService.create(app, Api.builder()
+                .name("Lag API")
+                .version("1.0")
+                .description("A sample description")
+                .swaggerDefinition("lagging behind")
+                .status(ApiStatus.BETA)
+                .build());
+    }
+
+    @After
+    public void cleanUp() {
+        applicationRepository.deleteAll();
+    }
+
+    @Test
+    public void indexedChangesHaveNoLag() {
+        monitor.check();
+        assertThat(monitor.getPendingCount()).isZero();
+        assertThat(monitor.getLagMillis()).isZero();
+    }
+
+    @Test
+    public void changesMissingFromTheIndexLag() throws InterruptedException {
+        Api newer = Api.builder().id(api.getId()).build();
+        newer.setRevision(api.getRevision() + 1);
+        monitor.onApiChanged(ApiChangedEvent.updated(newer));
+        Thread.sleep(20);
+        monitor.check();
+        assertThat(monitor.getPendingCount()).isEqualTo(1);
+        assertThat(monitor.getLagMillis()).isGreaterThanOrEqualTo(20);
+
+        // Deleting the api supersedes the missing change
+        apiService.delete(api.getId());
+        monitor.check();
+        assertThat(monitor.getPendingCount()).isZero();
+        assertThat(monitor.getLagMillis()).isZero();
+    }
+
+    @Test
+    public void changesOfDeletedApisAreDropped() {
+        apiService.delete(api.getId());
+        // Arrives after the deletion
+        Api stale = Api.builder().id(api.getId()).build();
+        stale.setRevision(api.getRevision() + 1);
+        monitor.onApiChanged(ApiChangedEvent.updated(stale));
+        monitor.check();
+        assertThat(monitor.getPendingCount()).isZero();
+        assertThat(monitor.getLagMillis()).isZero();
+    }
+}
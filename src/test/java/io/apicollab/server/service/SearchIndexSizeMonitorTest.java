@@ -0,0 +1,60 @@
+package io.apicollab.server.service;
+
+import io.apicollab.server.constant.ApiStatus;
+import io.apicollab.server.domain.Api;
+import io.apicollab.server.domain.Application;
+import io.apicollab.server.repository.ApplicationRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class SearchIndexSizeMonitorTest {
+
+    @Autowired
+    ApplicationRepository applicationRepository;
+
+    @Autowired
+    ApplicationService applicationService;
+
+    @Autowired
+    ApiService apiService;
+
+    @Autowired
+    SearchIndexSizeMonitor monitor;
+
+    @Before
+    public void setup() {
+        Application app = new Application();
+        app.setName("sizeApp");
+        app.setEmail("size@gmail.com");
+        app = applicationService.create(app);
+        apiService.create(app, Api.builder()
+                .name("Size API")
+                .version("1.0")
+                .description("A sample description")
+                .swaggerDefinition("petstore inventory")
+                .status(ApiStatus.BETA)
+                .build());
+    }
+
+    @After
+    public void cleanUp() {
+        applicationRepository.deleteAll();
+    }
+
+    @Test
+    public void reportsSizeAndPrefixTerms() {
+        monitor.check();
+        assertThat(monitor.getSizeInBytes()).isPositive();
+        // Every prefix of every word is a term of the prefix field
+        assertThat(monitor.getTermCount(Api.PREFIX_FIELD)).isGreaterThan(monitor.getTermCount("swaggerDefinition"));
+    }
+}
@@ -1,11 +1,20 @@
 package io.apicollab.server.service;
 
+import io.apicollab.server.constant.ApiStatus;
+import io.apicollab.server.domain.Api;
+import io.apicollab.server.domain.Application;
+import io.apicollab.server.repository.ApiRepository;
+import io.apicollab.server.repository.ApplicationRepository;
+import org.junit.After;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -23,6 +32,30 @@ public class SuggestionServiceTest {
     @Autowired
     private SuggestionService service;
 
+    @Autowired
+    private ApplicationService applicationService;
+
+    @Autowired
+    private ApiService apiService;
+
+    @Autowired
+    private ApplicationRepository applicationRepository;
+
+    @Autowired
+    private ApiRepository apiRepository;
+
+    @After
+    public void cleanup() {
+        apiRepository.deleteAll();
+        applicationRepository.deleteAll();
+    }
+
+    private Api createApi(String swaggerDefinition, ApiStatus status) {
+        Application application = applicationService.create(Application.builder().name("Suggestions").email("suggestions@appcompany.com").build());
+        Api api = Api.builder().name("Api_1").version("0.1").description("a description").status(status).swaggerDefinition(swaggerDefinition).build();
+        return applicationService.createNewApiVersion(application.getId(), api);
+    }
+
     @Test
     public void testSearchFullWord() {
         service.processDocuments(asList(TEXT_1, TEXT_2));
@@ -66,4 +99,140 @@ public class SuggestionServiceTest {
         assertThat(words).doesNotHaveDuplicates();
     }
 
+    @Test
+    public void indexCreatedApiWithoutRefresh() {
+        createApi("{\"paths\":{\"/quokkas\":{}}}", ApiStatus.BETA);
+        List<String> words = service.search("quokka");
+        assertThat(words).contains("quokkas");
+    }
+
+    @Test
+    public void skipCreatedArchivedApi() {
+        createApi("{\"paths\":{\"/wombats\":{}}}", ApiStatus.ARCHIVED);
+        List<String> words = service.search("wombat");
+        assertThat(words).doesNotContain("wombats");
+    }
+
+    @Test
+    public void refreshSkipsIndexedRevisions() {
+        service.processAllApiDocuments();
+        Api api = createApi("{\"paths\":{\"/numbats\":{}}}", ApiStatus.BETA);
+        service.processAllApiDocuments();
+        assertThat(service.getLastRefreshStats().getProcessed()).isZero();
+        assertThat(service.getLastRefreshStats().getSkipped()).isEqualTo(1);
+
+        // Change the api behind the service's back
+        api = apiRepository.findById(api.getId()).get();
+        api.setDescription("changed description");
+        apiRepository.save(api);
+        service.processAllApiDocuments();
+        assertThat(service.getLastRefreshStats().getProcessed()).isEqualTo(1);
+        assertThat(service.getLastRefreshStats().getSkipped()).isZero();
+    }
+
+    @Test
+    public void rankByNumberOfDocuments() {
+        service.processDocuments(asList("zebrafinch zebrafish zebrafinch", "zebrafish"));
+        List<String> words = service.search("zebraf");
+        assertThat(words).containsExactly("zebrafish", "zebrafinch");
+    }
+
+    @Test
+    public void removeDeletedApiKeywords() {
+        Api api = createApi("{\"paths\":{\"/quokkas\":{}}}", ApiStatus.BETA);
+        assertThat(service.search("quokka")).contains("quokkas");
+        apiService.delete(api.getId());
+        assertThat(service.search("quokka")).doesNotContain("quokkas");
+    }
+
+    @Test
+    public void removeArchivedApiKeywords() {
+        Api api = createApi("{\"paths\":{\"/bilbies\":{}}}", ApiStatus.BETA);
+        assertThat(service.search("bilbi")).contains("bilbies");
+        apiService.update(api.getId(), Api.builder().status(ApiStatus.ARCHIVED).build());
+        assertThat(service.search("bilbi")).doesNotContain("bilbies");
+    }
+
+    @Test
+    public void olderRevisionDoesNotReplaceIndexedOne() {
+        Api api = createApi("{\"paths\":{\"/quolls\":{}}}", ApiStatus.BETA);
+        // As read by a reconciliation before the api was indexed from its event
+        Api stale = Api.builder().id(api.getId()).status(ApiStatus.BETA).swaggerDefinition("{\"paths\":{\"/dingoes\":{}}}").build();
+        stale.setRevision(api.getRevision() - 1);
+        ReflectionTestUtils.invokeMethod(AopTestUtils.getTargetObject(service), "processApis", Collections.singletonList(stale));
+        assertThat(service.search("quoll")).contains("quolls");
+        assertThat(service.search("dingo")).doesNotContain("dingoes");
+    }
+
+    @Test
+    public void refreshRemovesMissingApis() {
+        service.processAllApiDocuments();
+        Api api = createApi("{\"paths\":{\"/potoroos\":{}}}", ApiStatus.BETA);
+        // Delete the api behind the service's back
+        apiRepository.deleteById(api.getId());
+        service.processAllApiDocuments();
+        assertThat(service.getLastRefreshStats().getRemoved()).isEqualTo(1);
+        assertThat(service.search("potoroo")).doesNotContain("potoroos");
+    }
+
+    @Test
+    public void rebuildKeepsSuggestions() {
+        service.processDocuments(Collections.singletonList("dunnart dunnarts"));
+        service.rebuildIndex();
+        assertThat(service.search("dunnar")).contains("dunnart", "dunnarts");
+    }
+
+    @Test
+    public void searchAgainAfterIndexChange() {
+        service.processDocuments(Collections.singletonList("wallaby"));
+        assertThat(service.search("wallab")).containsExactly("wallaby");
+        service.processDocuments(Collections.singletonList("wallabies"));
+        assertThat(service.search("wallab")).contains("wallaby", "wallabies");
+    }
+
+    @Test
+    public void indexManyDocumentsInParallel() {
+        List<String> documents = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            documents.add("koala koala gumleaf" + i + (i % 10 == 0 ? " koalas" : ""));
+        }
+        service.processDocuments(documents);
+        assertThat(service.search("koal")).containsExactly("koala", "koalas");
+        assertThat(service.search("gumleaf499")).startsWith("gumleaf499");
+    }
+
+    @Test
+    public void restrictSuggestionsToApis() {
+        Application zoo = applicationService.create(Application.builder().name("Zoo").email("zoo@appcompany.com").build());
+        Application farm = applicationService.create(Application.builder().name("Farm").email("farm@appcompany.com").build());
+        Api dingos = applicationService.createNewApiVersion(zoo.getId(), Api.builder().name("Dingos").version("0.1")
+                .description("a description").status(ApiStatus.BETA).tags(asList("Wild"))
+                .swaggerDefinition("{\"paths\":{\"/dingos\":{}, \"/dingoes\":{}}}").build());
+        applicationService.createNewApiVersion(farm.getId(), Api.builder().name("Dingos").version("0.1")
+                .description("a description").status(ApiStatus.STABLE).tags(asList("tame"))
+                .swaggerDefinition("{\"paths\":{\"/dingos\":{}, \"/dingobats\":{}}}").build());
+        assertThat(service.search("dingo")).containsExactlyInAnyOrder("dingos", "dingoes", "dingobats");
+        assertThat(service.suggest("dingo", zoo.getId(), null, null).getSuggestions()).containsExactlyInAnyOrder("dingos", "dingoes");
+        assertThat(service.suggest("dingo", null, ApiStatus.STABLE, null).getSuggestions()).containsExactlyInAnyOrder("dingos", "dingobats");
+        assertThat(service.suggest("dingo", null, null, "wild").getSuggestions()).containsExactlyInAnyOrder("dingos", "dingoes");
+        assertThat(service.suggest("dingo", farm.getId(), ApiStatus.BETA, null).getSuggestions()).isEmpty();
+        // Moving an api to another scope moves its keywords
+        apiService.update(dingos.getId(), Api.builder().status(ApiStatus.STABLE).build());
+        assertThat(service.suggest("dingo", null, ApiStatus.STABLE, null).getSuggestions()).containsExactlyInAnyOrder("dingos", "dingoes", "dingobats");
+    }
+
+    @Test
+    public void completePhrases() {
+        createApi("openapi: 3.0.0\n" +
+                "info: {title: Platypus, version: '1'}\n" +
+                "paths:\n" +
+                "  /platypuses:\n" +
+                "    get: {summary: Find platypus burrows, responses: {'200': {description: ok}}}\n", ApiStatus.BETA);
+        assertThat(service.suggestPhrases("find platy", null, null, null).getSuggestions())
+                .containsExactlyInAnyOrder("find platypus", "find platypus burrows");
+        assertThat(service.suggestPhrases("Find Platypus ", null, null, null).getSuggestions())
+                .containsExactly("find platypus burrows");
+        assertThat(service.suggestPhrases("find platy", null, ApiStatus.STABLE, null).getSuggestions()).isEmpty();
+    }
+
 }
@@ -0,0 +1,57 @@
+package io.apicollab.server.service.suggestion;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DeletionDictionaryTest {
+
+    private final DeletionDictionary dictionary = new DeletionDictionary();
+
+    @Test
+    public void distance() {
+        assertThat(DeletionDictionary.distance("pets", "pets")).isEqualTo(0);
+        assertThat(DeletionDictionary.distance("pets", "pest")).isEqualTo(1);
+        assertThat(DeletionDictionary.distance("pets", "petstore")).isEqualTo(3);
+        assertThat(DeletionDictionary.distance("petstore", "ptestroe")).isEqualTo(2);
+        assertThat(DeletionDictionary.distance("orders", "ordrs")).isEqualTo(1);
+    }
+
+    @Test
+    public void lookupClosestFirst() {
+        dictionary.add("petstore");
+        dictionary.add("petstores");
+        dictionary.add("pets");
+        dictionary.add("orders");
+        assertThat(dictionary.lookup("petstor", 10)).containsExactly("petstore", "petstores");
+        assertThat(dictionary.lookup("pest", 10)).containsExactly("pets");
+        assertThat(dictionary.lookup("pest", 10)).doesNotContain("petstore");
+        assertThat(dictionary.lookup("petsotre", 1)).containsExactly("petstore");
+    }
+
+    @Test
+    public void lookupLongKeywordsByPrefix() {
+        dictionary.add("createpetsrequest");
+        // Typos past the stored prefix are caught by the full distance
+        assertThat(dictionary.lookup("createpetsreqeust", 10)).containsExactly("createpetsrequest");
+        assertThat(dictionary.lookup("crreatepetsrequest", 10)).containsExactly("createpetsrequest");
+        assertThat(dictionary.lookup("createpetsresponse", 10)).isEmpty();
+    }
+
+    @Test
+    public void removeReleasesMemory() {
+        dictionary.add("petstore");
+        long used = dictionary.ramBytesUsed();
+        dictionary.add("petstore");
+        assertThat(dictionary.ramBytesUsed()).isEqualTo(used);
+        dictionary.add("pets");
+        assertThat(dictionary.size()).isEqualTo(2);
+        dictionary.remove("pets");
+        dictionary.remove("unknown");
+        assertThat(dictionary.size()).isEqualTo(1);
+        assertThat(dictionary.ramBytesUsed()).isEqualTo(used);
+        dictionary.remove("petstore");
+        assertThat(dictionary.lookup("petstore", 10)).isEmpty();
+        assertThat(dictionary.ramBytesUsed()).isZero();
+    }
+}
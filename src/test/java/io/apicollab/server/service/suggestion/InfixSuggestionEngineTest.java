@@ -0,0 +1,228 @@
+package io.apicollab.server.service.suggestion;
+
+import org.apache.lucene.search.Query;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InfixSuggestionEngineTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private InfixSuggestionEngine engine;
+
+    @Before
+    public void setup() throws IOException {
+        engine = new InfixSuggestionEngine();
+        engine.index(weights("listpets", "pets", "petstore", "startdate", "start", "name"));
+        engine.refresh();
+    }
+
+    private static Map<String, Long> weights(String... words) {
+        Map<String, Long> weights = new LinkedHashMap<>();
+        Stream.of(words).forEach(w -> weights.put(w, 1L));
+        return weights;
+    }
+
+    @After
+    public void cleanup() throws IOException {
+        engine.close();
+    }
+
+    @Test
+    public void lookupBeforeRefresh() throws IOException {
+        try (InfixSuggestionEngine emptyEngine = new InfixSuggestionEngine()) {
+            assertThat(emptyEngine.lookup("pet", 10)).isEmpty();
+        }
+    }
+
+    @Test
+    public void lookupFullWord() throws IOException {
+        assertThat(engine.lookup("petstore", 10)).containsOnly("petstore");
+    }
+
+    @Test
+    public void lookupPrefix() throws IOException {
+        List<String> words = engine.lookup("pet", 10);
+        assertThat(words).containsOnly("listpets", "pets", "petstore");
+    }
+
+    @Test
+    public void lookupShortInfix() throws IOException {
+        assertThat(engine.lookup("rt", 10)).containsOnly("startdate", "start");
+    }
+
+    @Test
+    public void lookupLongInfix() throws IOException {
+        assertThat(engine.lookup("tpet", 10)).containsOnly("listpets");
+    }
+
+    @Test
+    public void lookupIsLimited() throws IOException {
+        assertThat(engine.lookup("t", 2)).hasSize(2);
+    }
+
+    @Test
+    public void indexDuplicates() throws IOException {
+        engine.index(weights("pets"));
+        engine.index(weights("pets"));
+        engine.refresh();
+        assertThat(engine.lookup("pets", 10)).doesNotHaveDuplicates();
+    }
+
+    @Test
+    public void skipVeryLongWords() throws IOException {
+        StringBuilder word = new StringBuilder("x");
+        while (word.length() <= InfixSuggestionEngine.MAX_SUGGESTION_LENGTH) {
+            word.append("y");
+        }
+        engine.index(weights(word.toString()));
+        engine.refresh();
+        assertThat(engine.lookup("xy", 10)).isEmpty();
+    }
+
+    @Test
+    public void lookupByDescendingWeight() throws IOException {
+        Map<String, Long> weights = new LinkedHashMap<>();
+        weights.put("petid", 2L);
+        weights.put("petname", 5L);
+        weights.put("petage", 3L);
+        engine.index(weights);
+        engine.refresh();
+        assertThat(engine.lookup("pet", 3)).containsExactly("petname", "petage", "petid");
+    }
+
+    @Test
+    public void lookupExactMatchFirst() throws IOException {
+        Map<String, Long> weights = new LinkedHashMap<>();
+        weights.put("petid", 2L);
+        weights.put("petname", 5L);
+        engine.index(weights);
+        engine.refresh();
+        assertThat(engine.lookup("pets", 10).get(0)).isEqualTo("pets");
+    }
+
+    @Test
+    public void removeZeroWeight() throws IOException {
+        Map<String, Long> weights = new LinkedHashMap<>();
+        weights.put("petstore", 0L);
+        engine.index(weights);
+        engine.refresh();
+        assertThat(engine.lookup("pet", 10)).containsOnly("listpets", "pets");
+    }
+
+    @Test
+    public void rebuildReplacesIndex() throws IOException {
+        long generation = engine.getGeneration();
+        engine.rebuild(() -> weights("petshop"));
+        assertThat(engine.getGeneration()).isEqualTo(generation + 1);
+        assertThat(engine.lookup("pet", 10)).containsOnly("petshop");
+    }
+
+    @Test
+    public void rebuildKeepsChangesMadeWhileBuilding() throws IOException {
+        engine.rebuild(() -> {
+            try {
+                engine.index(weights("petfood"));
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return weights("petshop");
+        });
+        assertThat(engine.lookup("pet", 10)).containsOnly("petshop", "petfood");
+    }
+
+    @Test
+    public void reopenPersistentIndex() throws IOException {
+        Path path = folder.getRoot().toPath();
+        try (InfixSuggestionEngine persistentEngine = new InfixSuggestionEngine(path, word -> Collections.emptySet())) {
+            persistentEngine.index(weights("petstore", "listpets"));
+            persistentEngine.refresh("first");
+            persistentEngine.rebuild(() -> weights("petstore", "pets"));
+            persistentEngine.refresh("second");
+        }
+        try (InfixSuggestionEngine persistentEngine = new InfixSuggestionEngine(path, word -> Collections.emptySet())) {
+            assertThat(persistentEngine.getGeneration()).isEqualTo(2);
+            assertThat(persistentEngine.lookup("pet", 10)).containsOnly("petstore", "pets");
+            assertThat(persistentEngine.isConsistent("second")).isTrue();
+            assertThat(persistentEngine.isConsistent("first")).isFalse();
+        }
+        // The replaced generation is deleted
+        assertThat(path.resolve("generation-1")).doesNotExist();
+    }
+
+    @Test
+    public void consistentWithTheLastCommittedFingerprint() throws IOException {
+        assertThat(engine.isConsistent("first")).isFalse();
+        engine.refresh("first");
+        assertThat(engine.isConsistent("first")).isTrue();
+        engine.rebuild(() -> weights("pets"));
+        assertThat(engine.isConsistent("first")).isFalse();
+        engine.refresh("second");
+        assertThat(engine.isConsistent("second")).isTrue();
+    }
+
+    @Test
+    public void lookupWithinTimeBudget() throws IOException {
+        SuggestionResults results = engine.lookup("pets", Collections.emptySet(), 10, 10_000);
+        assertThat(results.isTruncated()).isFalse();
+        assertThat(results.getSuggestions()).containsExactly("pets", "listpets", "petstore");
+    }
+
+    @Test
+    public void lookupWithinScopes() throws IOException {
+        Map<String, Set<String>> scopes = new HashMap<>();
+        scopes.put("pets", new HashSet<>(asList("tag:pets", "status:BETA")));
+        scopes.put("petstore", Collections.singleton("tag:pets"));
+        scopes.put("listpets", Collections.singleton("status:BETA"));
+        try (InfixSuggestionEngine scopedEngine = new InfixSuggestionEngine(null,
+                word -> scopes.getOrDefault(word, Collections.emptySet()))) {
+            scopedEngine.index(weights("listpets", "pets", "petstore"));
+            scopedEngine.refresh();
+            assertThat(scopedEngine.lookup("pets", Collections.singleton("tag:pets"), 10, 0).getSuggestions())
+                    .containsExactly("pets", "petstore");
+            assertThat(scopedEngine.lookup("pets", new HashSet<>(asList("tag:pets", "status:BETA")), 10, 0).getSuggestions())
+                    .containsExactly("pets");
+            assertThat(scopedEngine.lookup("pets", Collections.singleton("tag:orders"), 10, 0).getSuggestions())
+                    .isEmpty();
+        }
+    }
+
+    @Test
+    public void truncateSlowLookup() throws IOException {
+        try (InfixSuggestionEngine slowEngine = new InfixSuggestionEngine() {
+            @Override
+            protected Query buildQuery(String partialWord) {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.buildQuery(partialWord);
+            }
+        }) {
+            slowEngine.index(weights("listpets", "pets", "petstore"));
+            slowEngine.refresh();
+            SuggestionResults results = slowEngine.lookup("pets", Collections.emptySet(), 10, 10);
+            assertThat(results.isTruncated()).isTrue();
+            assertThat(results.getSuggestions()).containsExactly("pets");
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package io.apicollab.server.service.suggestion;
+
+import org.junit.Test;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OpenApiKeywordExtractorTest {
+
+    private final OpenApiKeywordExtractor extractor = new OpenApiKeywordExtractor();
+
+    private static String readResource(String name) throws IOException {
+        try (InputStream in = OpenApiKeywordExtractorTest.class.getResourceAsStream(name)) {
+            return StreamUtils.copyToString(in, StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    public void splitCamelCase() {
+        assertThat(OpenApiKeywordExtractor.split("listPetsById")).containsExactly("listpetsbyid", "list", "pets", "by", "id");
+        assertThat(OpenApiKeywordExtractor.split("HTTPServer2Config")).containsExactly("httpserver2config", "http", "server2", "config");
+    }
+
+    @Test
+    public void splitSnakeCase() {
+        assertThat(OpenApiKeywordExtractor.split("pet_store_id")).containsExactly("pet_store_id", "pet", "store", "id");
+        assertThat(OpenApiKeywordExtractor.split("x-rate-limit")).containsExactly("x", "rate", "limit");
+    }
+
+    @Test
+    public void splitSingleWord() {
+        assertThat(OpenApiKeywordExtractor.split("Pets")).containsExactly("pets");
+        assertThat(OpenApiKeywordExtractor.split("a_b")).containsExactly("a_b");
+    }
+
+    @Test
+    public void extractOpenApiIdentifiers() throws IOException {
+        Map<String, Integer> keywords = extractor.extract(readResource("/apis/valid.yml"));
+        assertThat(keywords).containsKeys("pets", "listpets", "list", "limit", "pet", "id", "name", "tag", "error", "code", "message");
+        assertThat(keywords).doesNotContainKeys("description", "responses", "schema", "type", "integer", "sample", "unexpected");
+    }
+
+    @Test
+    public void extractSwaggerIdentifiers() throws IOException {
+        Map<String, Integer> keywords = extractor.extract(readResource("/apis/valid_swagger.yml"));
+        assertThat(keywords).isNotEmpty().doesNotContainKeys("description", "responses");
+    }
+
+    @Test
+    public void extractFewerKeywordsThanText() throws IOException {
+        String spec = readResource("/apis/valid.yml");
+        assertThat(extractor.extract(spec).size()).isLessThan(new TextKeywordExtractor().extract(spec).size() / 2);
+    }
+
+    @Test
+    public void fallbackToText() {
+        assertThat(extractor.extract("This is doc1")).containsOnlyKeys("this", "is", "doc1");
+    }
+}
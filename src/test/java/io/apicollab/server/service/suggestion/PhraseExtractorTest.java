@@ -0,0 +1,83 @@
+package io.apicollab.server.service.suggestion;
+
+import io.apicollab.server.service.ApiSpecParserService;
+import io.swagger.v3.oas.models.OpenAPI;
+import org.junit.Test;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PhraseExtractorTest {
+
+    private final PhraseExtractor extractor = new PhraseExtractor();
+
+    private static String readResource(String name) throws IOException {
+        try (InputStream in = PhraseExtractorTest.class.getResourceAsStream(name)) {
+            return StreamUtils.copyToString(in, StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    public void extractShingles() throws IOException {
+        Map<String, Integer> phrases = extractor.extract(readResource("/apis/valid.yml"));
+        // Summary
+        assertThat(phrases).containsKeys("list all", "all pets", "list all pets");
+        // Words never span two summaries, paths or names
+        assertThat(phrases.keySet()).allMatch(phrase -> phrase.split(" ").length <= PhraseExtractor.MAX_SHINGLE_SIZE);
+        assertThat(phrases.keySet()).allMatch(phrase -> phrase.split(" ").length >= PhraseExtractor.MIN_SHINGLE_SIZE);
+    }
+
+    @Test
+    public void extractPathsAndSchemaNames() {
+        Map<String, Integer> phrases = extractor.extract("openapi: 3.0.0\n" +
+                "info: {title: Users, version: '1'}\n" +
+                "paths:\n" +
+                "  /users/{userId}/orders:\n" +
+                "    get: {summary: Get user orders, responses: {'200': {description: ok}}}\n" +
+                "components:\n" +
+                "  schemas:\n" +
+                "    UserOrder: {type: object}\n");
+        assertThat(phrases).containsKeys("users user id", "user id orders", "user orders", "get user orders");
+        assertThat(phrases).containsEntry("user order", 1);
+    }
+
+    @Test
+    public void extractFromParsedModel() throws IOException {
+        String document = readResource("/apis/valid.yml");
+        OpenAPI openAPI = ApiSpecParserService.parseOpenAPI(document);
+        assertThat(extractor.extract(document, openAPI)).isEqualTo(extractor.extract(document));
+        assertThat(new OpenApiKeywordExtractor().extract(document, openAPI))
+                .isEqualTo(new OpenApiKeywordExtractor().extract(document));
+    }
+
+    @Test
+    public void noPhrasesOfText() {
+        assertThat(extractor.extract("not a specification")).isEmpty();
+    }
+
+    @Test
+    public void normalizePrefix() {
+        assertThat(PhraseExtractor.normalizePrefix("Get  User")).isEqualTo("get user");
+        assertThat(PhraseExtractor.normalizePrefix("getUser ")).isEqualTo("get user ");
+        assertThat(PhraseExtractor.normalizePrefix(" ")).isEmpty();
+    }
+
+    @Test
+    public void completePhrasesInOneLookup() throws IOException {
+        try (PhraseSuggestionEngine engine = new PhraseSuggestionEngine()) {
+            Map<String, Integer> phrases = extractor.extract(readResource("/apis/valid.yml"));
+            Map<String, Long> weights = new HashMap<>();
+            phrases.forEach((phrase, count) -> weights.put(phrase, (long) count));
+            engine.index(weights);
+            engine.refresh();
+            assertThat(engine.lookup("list a", 10)).containsExactlyInAnyOrder("list all", "list all pets");
+            assertThat(engine.lookup("list all ", 10)).containsExactly("list all pets");
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package io.apicollab.server.service.suggestion;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class QuerySuggestionEngineTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Map<String, Long> weights(String... words) {
+        Map<String, Long> weights = new LinkedHashMap<>();
+        Stream.of(words).forEach(w -> weights.put(w, 1L));
+        return weights;
+    }
+
+    @Test
+    public void correctTyposFromDeletionDictionary() throws IOException {
+        try (QuerySuggestionEngine fuzzyEngine = new QuerySuggestionEngine(null, word -> Collections.emptySet(), false);
+             QuerySuggestionEngine deletesEngine = new QuerySuggestionEngine(null, word -> Collections.emptySet(), true)) {
+            for (SuggestionEngine engine : asList(fuzzyEngine, deletesEngine)) {
+                engine.index(weights("petstore", "listpets", "orders", "order"));
+                engine.refresh();
+            }
+            assertThat(deletesEngine.lookup("ordres", 10)).containsExactlyInAnyOrder(fuzzyEngine.lookup("ordres", 10).toArray(new String[0]));
+            assertThat(deletesEngine.lookup("petsotre", 10)).containsExactly("petstore");
+            assertThat(fuzzyEngine.getMemoryUsage()).isZero();
+            assertThat(deletesEngine.getMemoryUsage()).isPositive();
+        }
+    }
+
+    @Test
+    public void reloadDeletionDictionary() throws IOException {
+        Path path = folder.getRoot().toPath();
+        try (QuerySuggestionEngine engine = new QuerySuggestionEngine(path, word -> Collections.emptySet(), true)) {
+            engine.index(weights("petstore", "listpets"));
+            engine.refresh();
+            engine.index(Collections.singletonMap("listpets", 0L));
+            engine.refresh();
+        }
+        try (QuerySuggestionEngine engine = new QuerySuggestionEngine(path, word -> Collections.emptySet(), true)) {
+            assertThat(engine.lookup("petsotre", 10)).containsExactly("petstore");
+            assertThat(engine.lookup("listptes", 10)).isEmpty();
+        }
+    }
+}
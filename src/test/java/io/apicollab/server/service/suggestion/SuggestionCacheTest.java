@@ -0,0 +1,75 @@
+package io.apicollab.server.service.suggestion;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SuggestionCacheTest {
+
+    private static final List<String> RESULTS = asList("pets", "petstore");
+
+    private final SuggestionCache cache = new SuggestionCache(1024);
+
+    @Test
+    public void hitAfterPut() {
+        assertThat(cache.get(1L, "pet")).isNull();
+        cache.put(1L, "pet", RESULTS);
+        assertThat(cache.get(1L, "pet")).isEqualTo(RESULTS);
+    }
+
+    @Test
+    public void invalidateOnNewVersion() {
+        cache.put(1L, "pet", RESULTS);
+        assertThat(cache.get(2L, "pet")).isNull();
+        assertThat(cache.size()).isZero();
+        assertThat(cache.weight()).isZero();
+    }
+
+    @Test
+    public void ignoreOutdatedResults() {
+        cache.put(2L, "pet", RESULTS);
+        cache.put(1L, "sto", RESULTS);
+        assertThat(cache.get(2L, "sto")).isNull();
+        assertThat(cache.get(1L, "pet")).isNull();
+        assertThat(cache.get(2L, "pet")).isEqualTo(RESULTS);
+    }
+
+    @Test
+    public void evictLeastRecentlyUsed() {
+        for (int i = 0; i < 10; i++) {
+            cache.put(1L, "pet" + i, RESULTS);
+            // Keep the first entry in use
+            cache.get(1L, "pet0");
+        }
+        assertThat(cache.weight()).isLessThanOrEqualTo(1024);
+        assertThat(cache.size()).isLessThan(10);
+        assertThat(cache.get(1L, "pet0")).isEqualTo(RESULTS);
+        assertThat(cache.get(1L, "pet1")).isNull();
+    }
+
+    @Test
+    public void skipEntriesLargerThanCache() {
+        cache.put(1L, "pet", Collections.nCopies(100, "petstore"));
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    public void reportMetrics() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        cache.metrics("suggestions").bindTo(registry);
+        cache.get(1L, "pet");
+        cache.put(1L, "pet", RESULTS);
+        cache.get(1L, "pet");
+        cache.get(2L, "pet");
+        assertThat(registry.get("cache.gets").tag("result", "hit").functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("cache.gets").tag("result", "miss").functionCounter().count()).isEqualTo(2);
+        assertThat(registry.get("cache.invalidations").functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("cache.hit.ratio").gauge().value()).isEqualTo(1.0 / 3);
+    }
+}
@@ -0,0 +1,62 @@
+package io.apicollab.server.service.suggestion;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SuggestionDocumentStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Map<String, Integer> counts(String term, int count) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        counts.put(term, count);
+        counts.put("pets", 1);
+        return counts;
+    }
+
+    private static List<SuggestionDocumentStore.StoredDocument> readAll(SuggestionDocumentStore store) throws IOException {
+        List<SuggestionDocumentStore.StoredDocument> documents = new ArrayList<>();
+        store.forEach(documents::add);
+        return documents;
+    }
+
+    @Test
+    public void emptyStore() throws IOException {
+        try (SuggestionDocumentStore store = new SuggestionDocumentStore(folder.getRoot().toPath())) {
+            assertThat(readAll(store)).isEmpty();
+        }
+    }
+
+    @Test
+    public void reopenCommittedDocuments() throws IOException {
+        Path path = folder.getRoot().toPath();
+        try (SuggestionDocumentStore store = new SuggestionDocumentStore(path)) {
+            store.put("api1", 3L, counts("petstore", 2), counts("list pets", 1), new HashSet<>(asList("status:BETA", "tag:pets")));
+            store.put("api2", null, counts("listpets", 1), Collections.emptyMap(), Collections.emptySet());
+            store.put("api3", 1L, counts("orders", 1), Collections.emptyMap(), Collections.emptySet());
+            store.put("api3", null, Collections.emptyMap(), Collections.emptyMap(), Collections.emptySet());
+            store.commit();
+        }
+        try (SuggestionDocumentStore store = new SuggestionDocumentStore(path)) {
+            assertThat(readAll(store)).containsExactlyInAnyOrder(
+                    new SuggestionDocumentStore.StoredDocument("api1", 3L, counts("petstore", 2), counts("list pets", 1),
+                            new HashSet<>(asList("status:BETA", "tag:pets"))),
+                    new SuggestionDocumentStore.StoredDocument("api2", null, counts("listpets", 1), Collections.emptyMap(),
+                            Collections.emptySet()));
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package io.apicollab.server.service.suggestion;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SuggestionTokenizerTest {
+
+    private static final String REGEX_INVALID_CHAR = "[\\s@\"&:{}/#.,?$+-]+";
+
+    private final SuggestionTokenizer tokenizer = new SuggestionTokenizer();
+
+    private static Map<String, Integer> countWithRegex(String text) {
+        return Arrays.stream(text.split(REGEX_INVALID_CHAR))
+                .filter(StringUtils::isNotBlank)
+                .map(w -> w.toLowerCase(Locale.ROOT))
+                .collect(Collectors.toMap(w -> w, w -> 1, Integer::sum));
+    }
+
+    private static String readResource(String name) throws IOException {
+        try (InputStream in = SuggestionTokenizerTest.class.getResourceAsStream(name)) {
+            return StreamUtils.copyToString(in, StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    public void countKeywords() {
+        Map<String, Integer> counts = tokenizer.count("{\"name\":\"Steve\", \"startDate\":\" The start Date\" }");
+        assertThat(counts).containsOnlyKeys("name", "steve", "startdate", "the", "start", "date");
+        assertThat(counts.get("name")).isEqualTo(1);
+    }
+
+    @Test
+    public void countRepeatedKeywords() {
+        Map<String, Integer> counts = tokenizer.count("Pets pets/PETS\t#pet");
+        assertThat(counts).containsOnlyKeys("pets", "pet");
+        assertThat(counts.get("pets")).isEqualTo(3);
+    }
+
+    @Test
+    public void emptyText() {
+        assertThat(tokenizer.count("")).isEmpty();
+        assertThat(tokenizer.count(" -/.,\n ")).isEmpty();
+    }
+
+    @Test
+    public void lowercaseSupplementaryCharacters() {
+        // DESERET CAPITAL LETTER LONG I lowercases to DESERET SMALL LETTER LONG I
+        assertThat(tokenizer.count("a𐐀b")).containsOnlyKeys("a𐐨b");
+    }
+
+    @Test
+    public void sameAsRegex() throws IOException {
+        for (String resource : Arrays.asList("/apis/valid.yml", "/apis/valid_swagger.yml", "/apis/invalid.yml")) {
+            String text = readResource(resource);
+            assertThat(tokenizer.count(text)).isEqualTo(countWithRegex(text));
+        }
+    }
+
+    @Test
+    public void reuseForLargeDocuments() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 200_000; i++) {
+            text.append("keyword").append(i % 50_000).append(' ');
+        }
+        Map<String, Integer> counts = tokenizer.count(text);
+        assertThat(counts).hasSize(50_000);
+        assertThat(counts.values()).containsOnly(4);
+        assertThat(tokenizer.count("after a large document")).containsOnlyKeys("after", "a", "large", "document");
+    }
+}
@@ -0,0 +1,89 @@
+package io.apicollab.server.service.suggestion;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SuggestionVocabularyTest {
+
+    private final SuggestionVocabulary vocabulary = new SuggestionVocabulary();
+
+    private static Map<String, Integer> counts(Object... termsAndCounts) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < termsAndCounts.length; i += 2) {
+            counts.put((String) termsAndCounts[i], (Integer) termsAndCounts[i + 1]);
+        }
+        return counts;
+    }
+
+    @Test
+    public void moreDocumentsOutweighMoreOccurrences() {
+        vocabulary.put("api1", counts("pets", 1, "name", 20));
+        vocabulary.put("api2", counts("pets", 1));
+        assertThat(vocabulary.weight("pets")).isGreaterThan(vocabulary.weight("name"));
+    }
+
+    @Test
+    public void occurrencesBreakTies() {
+        vocabulary.put("api1", counts("pets", 3, "name", 2));
+        assertThat(vocabulary.weight("pets")).isGreaterThan(vocabulary.weight("name"));
+    }
+
+    @Test
+    public void reindexingDoesNotChangeWeights() {
+        vocabulary.put("api1", counts("pets", 3));
+        long weight = vocabulary.weight("pets");
+        Map<String, Long> changes = vocabulary.put("api1", counts("pets", 3));
+        assertThat(changes).containsEntry("pets", weight);
+        assertThat(vocabulary.weight("pets")).isEqualTo(weight);
+    }
+
+    @Test
+    public void unusedTermsDropToZero() {
+        vocabulary.put("api1", counts("pets", 1, "name", 1));
+        vocabulary.put("api2", counts("pets", 1));
+        Map<String, Long> changes = vocabulary.put("api1", Collections.emptyMap());
+        assertThat(changes).containsEntry("name", 0L);
+        assertThat(changes.get("pets")).isPositive();
+        assertThat(vocabulary.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void fingerprintFollowsWeights() {
+        String empty = vocabulary.fingerprint();
+        vocabulary.put("api1", counts("pets", 1, "name", 1));
+        vocabulary.put("api2", counts("pets", 1));
+        String fingerprint = vocabulary.fingerprint();
+
+        SuggestionVocabulary reordered = new SuggestionVocabulary();
+        reordered.put("api2", counts("pets", 1));
+        reordered.put("api1", counts("name", 1, "pets", 1));
+        assertThat(reordered.fingerprint()).isEqualTo(fingerprint);
+
+        vocabulary.put("api2", counts("pets", 2));
+        assertThat(vocabulary.fingerprint()).isNotEqualTo(fingerprint);
+        vocabulary.put("api2", counts("pets", 1));
+        assertThat(vocabulary.fingerprint()).isEqualTo(fingerprint);
+
+        vocabulary.put("api1", Collections.emptyMap());
+        vocabulary.put("api2", Collections.emptyMap());
+        assertThat(vocabulary.fingerprint()).isEqualTo(empty);
+    }
+
+    @Test
+    public void scopesFollowDocuments() {
+        vocabulary.put("api1", counts("pets", 1, "name", 1), new HashSet<>(asList("tag:pets", "status:BETA")));
+        vocabulary.put("api2", counts("pets", 1), Collections.singleton("tag:pets"));
+        assertThat(vocabulary.scopes("pets")).containsOnly("tag:pets", "status:BETA");
+        assertThat(vocabulary.scopes("name")).containsOnly("tag:pets", "status:BETA");
+        vocabulary.put("api1", counts("name", 1), Collections.emptySet());
+        assertThat(vocabulary.scopes("pets")).containsOnly("tag:pets");
+        assertThat(vocabulary.scopes("name")).isEmpty();
+    }
+}